@@ -0,0 +1,160 @@
+package frc.robot.benchmarks;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.util.datalog.DataLogBackgroundWriter;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.BinaryTelemetryLog;
+import frc.robot.RobotContainer;
+import frc.robot.SimHarness;
+
+/**
+ * Runs scheduler ticks of teleop and auto in simulation and measures how many bytes the main
+ * thread allocates per tick, using the JVM's per-thread allocation counter. The binary log's
+ * odometry sample and writer paths are measured the same way, since they run on other threads
+ * on the robot. Exits with status 1 if anything allocates more than the allowed amount, so it
+ * can gate a deploy.
+ *
+ * <p>Usage: AllocationCheck [ticks] [allowed bytes per tick], defaults 1000 and 0.
+ */
+public final class AllocationCheck {
+    // Enough for the JIT and every lazily built object to settle before measuring
+    private static final int kWarmUpTicks = 500;
+    private static final String kAuto = "Center";
+
+    private static final com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private AllocationCheck() {}
+
+    public static void main(String[] args) throws IOException {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long allowed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+
+        SimHarness.start();
+
+        // Driver pushing the left stick, a reef branch and level held on the operator boards
+        DriverStationSim.setJoystickAxisCount(0, 6);
+        DriverStationSim.setJoystickAxis(0, 1, -0.6);
+        DriverStationSim.setJoystickButtonCount(1, 14);
+        DriverStationSim.setJoystickButtons(1, 1 << 4);
+        DriverStationSim.setJoystickButtonCount(2, 9);
+        DriverStationSim.setJoystickButtons(2, 1 << 1);
+
+        RobotContainer container = new RobotContainer();
+
+        setMode(true, false);
+        long teleop = measure(kWarmUpTicks, ticks);
+
+        NetworkTableInstance.getDefault().getTable("SmartDashboard").getSubTable("Auto Choices")
+            .getEntry("selected").setString(kAuto);
+        SmartDashboard.updateValues();
+        setMode(true, true);
+        Command auto = container.getAutonomousCommand();
+
+        // Run the routine once to warm it up, then measure a second run from the start
+        CommandScheduler.getInstance().schedule(auto);
+        measure(0, ticks);
+        CommandScheduler.getInstance().cancel(auto);
+        CommandScheduler.getInstance().schedule(auto);
+        long autonomous = measure(0, ticks);
+
+        long[] binaryLog = measureBinaryLog(ticks);
+
+        System.out.printf("Teleop: %.1f bytes per tick%n", teleop / (double) ticks);
+        System.out.printf("Auto (%s): %.1f bytes per tick%n", kAuto, autonomous / (double) ticks);
+        System.out.printf("Binary log odometry sample: %.1f bytes per sample%n", binaryLog[0] / (double) ticks);
+        System.out.printf("Binary log writer: %.1f bytes per sample%n", binaryLog[1] / (double) ticks);
+
+        boolean passed = teleop <= allowed * ticks && autonomous <= allowed * ticks
+            && binaryLog[0] <= allowed * ticks && binaryLog[1] <= allowed * ticks;
+        System.out.println(passed ? "PASS" : "FAIL: more than " + allowed + " bytes per tick allocated");
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static void setMode(boolean enabled, boolean autonomous) {
+        DriverStationSim.setEnabled(enabled);
+        DriverStationSim.setAutonomous(autonomous);
+        DriverStationSim.notifyNewData();
+        DriverStation.refreshData();
+    }
+
+    /**
+     * Warms up, then runs the given number of ticks.
+     * @param warmUpTicks Ticks to run before measuring.
+     * @param ticks Ticks to measure.
+     * @return Bytes the main thread allocated over the measured ticks.
+     */
+    private static long measure(int warmUpTicks, int ticks) {
+        for (int i = 0; i < warmUpTicks; i++) {
+            tick();
+        }
+
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < ticks; i++) {
+            tick();
+        }
+        return threads.getThreadAllocatedBytes(thread) - before;
+    }
+
+    /**
+     * Measures the binary log on this thread: recordDrive() as the odometry thread calls it, and
+     * the mechanism sample and drain the main loop and writer thread do.
+     * @param samples Samples to measure, after the same number to warm up.
+     * @return Bytes allocated recording the samples, and writing them out.
+     */
+    private static long[] measureBinaryLog(int samples) throws IOException {
+        DataLogBackgroundWriter dataLog = new DataLogBackgroundWriter(
+            Files.createTempDirectory("allocation-check").toString(), "check.wpilog");
+        BinaryTelemetryLog binaryLog = new BinaryTelemetryLog(dataLog);
+        binaryLog.addMechanism("Elevator/Height", () -> 0.8);
+
+        SwerveDriveState state = new SwerveDriveState();
+        state.Pose = new Pose2d(3.2, 4.1, Rotation2d.fromDegrees(60));
+        state.Speeds = new ChassisSpeeds(1.5, -0.4, 0.8);
+        state.ModuleStates = new SwerveModuleState[4];
+        for (int i = 0; i < 4; i++) {
+            state.ModuleStates[i] = new SwerveModuleState(1.5, Rotation2d.fromDegrees(i * 90));
+        }
+
+        long thread = Thread.currentThread().getId();
+        long[] bytes = new long[2];
+        for (int pass = 0; pass < 2; pass++) {
+            bytes[0] = 0;
+            bytes[1] = 0;
+            for (int i = 0; i < samples; i++) {
+                long before = threads.getThreadAllocatedBytes(thread);
+                binaryLog.recordDrive(state);
+                long recorded = threads.getThreadAllocatedBytes(thread);
+                binaryLog.periodic();
+                binaryLog.drain();
+                bytes[0] += recorded - before;
+                bytes[1] += threads.getThreadAllocatedBytes(thread) - recorded;
+            }
+        }
+        dataLog.close();
+        return bytes;
+    }
+
+    private static void tick() {
+        SimHooks.stepTiming(TimedRobot.kDefaultPeriod);
+        DriverStation.refreshData();
+        CommandScheduler.getInstance().run();
+    }
+}
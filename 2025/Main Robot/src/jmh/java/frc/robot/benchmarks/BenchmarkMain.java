@@ -0,0 +1,27 @@
+package frc.robot.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs every benchmark and writes the results as JSON so runs can be compared before a deploy.
+ * An optional first argument overrides the output file.
+ */
+public final class BenchmarkMain {
+    private BenchmarkMain() {}
+
+    public static void main(String[] args) throws RunnerException {
+        String output = args.length > 0 ? args[0] : "build/reports/jmh/results.json";
+
+        Options options = new OptionsBuilder()
+            .include("frc\\.robot\\.benchmarks\\..*")
+            .resultFormat(ResultFormatType.JSON)
+            .result(output)
+            .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,75 @@
+package frc.robot.benchmarks;
+
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.util.datalog.DataLogBackgroundWriter;
+import frc.robot.BinaryTelemetryLog;
+
+/**
+ * Measures how many drivetrain samples per second the binary log can take in and write out.
+ * The odometry thread only needs 250 per second, anything far above that is headroom.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinaryTelemetryLogBenchmarks {
+
+    private DataLogBackgroundWriter dataLog;
+    private BinaryTelemetryLog binaryLog;
+    private final SwerveDriveState state = new SwerveDriveState();
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        HAL.initialize(500, 0);
+        dataLog = new DataLogBackgroundWriter(Files.createTempDirectory("binary-log").toString(), "bench.wpilog");
+        binaryLog = new BinaryTelemetryLog(dataLog);
+        binaryLog.addMechanism("Elevator/Height", () -> 0.8);
+
+        state.Pose = new Pose2d(3.2, 4.1, Rotation2d.fromDegrees(60));
+        state.Speeds = new ChassisSpeeds(1.5, -0.4, 0.8);
+        state.ModuleStates = new SwerveModuleState[4];
+        for (int i = 0; i < 4; i++) {
+            state.ModuleStates[i] = new SwerveModuleState(1.5, Rotation2d.fromDegrees(i * 90));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataLog.close();
+    }
+
+    /**
+     * One odometry sample recorded and written, the same path the writer thread takes but
+     * without the thread handoff. Run with -prof gc to check that nothing allocates.
+     */
+    @Benchmark
+    public void recordAndDrain() {
+        binaryLog.recordDrive(state);
+        binaryLog.periodic();
+        binaryLog.drain();
+    }
+}
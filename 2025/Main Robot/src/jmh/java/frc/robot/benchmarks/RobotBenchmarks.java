@@ -0,0 +1,95 @@
+package frc.robot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.OperatorBoard;
+import frc.robot.RobotContainer;
+import frc.robot.subsystems.Ejector;
+
+/**
+ * Benchmarks for the code that runs every 20 ms loop. Everything runs against the WPILib HAL
+ * simulation, so no robot or driver station is needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RobotBenchmarks {
+
+    private RobotContainer container;
+    private Ejector ejector;
+    private double input = 0.37;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        HAL.initialize(500, 0);
+        DriverStationSim.setEnabled(true);
+        DriverStationSim.setAutonomous(false);
+
+        // Hold a reef branch and an elevator level so every lookup has something to find
+        DriverStationSim.setJoystickButtonCount(1, 14);
+        DriverStationSim.setJoystickButtons(1, 1 << 4);
+        DriverStationSim.setJoystickButtonCount(2, 9);
+        DriverStationSim.setJoystickButtons(2, 1 << 1);
+        DriverStationSim.notifyNewData();
+
+        container = new RobotContainer();
+        ejector = container.getEjector();
+
+        // Let every subsystem sample its inputs once before measuring
+        CommandScheduler.getInstance().run();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        CommandScheduler.getInstance().unregisterAllSubsystems();
+        CommandScheduler.getInstance().getActiveButtonLoop().clear();
+    }
+
+    @Benchmark
+    public void scoringWaypoint(Blackhole blackhole) {
+        OperatorBoard.sample();
+        blackhole.consume(OperatorBoard.getScoringWaypoint(false));
+        blackhole.consume(OperatorBoard.getElevatorSetpoint());
+    }
+
+    @Benchmark
+    public boolean hasCoral() {
+        return ejector.hasCoral();
+    }
+
+    @Benchmark
+    public double squareInput() {
+        return container.squareInput(input);
+    }
+
+    @Benchmark
+    public void triggerConditions() {
+        // Polls every trigger registered in configureBindings
+        CommandScheduler.getInstance().getDefaultButtonLoop().poll();
+    }
+
+    @Benchmark
+    public void schedulerTick() {
+        CommandScheduler.getInstance().run();
+    }
+}
@@ -0,0 +1,141 @@
+package frc.robot.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.subsystems.TelemetryPublisher;
+import frc.robot.vision.ReplayCamera;
+import frc.robot.vision.VisionFrame;
+import frc.robot.vision.VisionPipeline;
+
+/**
+ * Runs a synthetic camera recording through the vision pipeline on the replay camera: the robot
+ * circling the blue reef, seen by one to three tags at 30 ms latency, with one result in ten
+ * made bad in some way. Measures results processed per second, and prints how many of them
+ * were accepted and why the rest were rejected.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VisionPipelineBenchmarks {
+    private static final int kResults = 1000;
+    private static final double kLatency = 0.03;
+
+    private ReplayCamera camera;
+    private VisionPipeline pipeline;
+    private long measurements = 0;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        HAL.initialize(500, 0);
+        File file = new File(Files.createTempDirectory("vision").toFile(), "vision.bin");
+        writeRecording(file);
+
+        // Every result is released right away, its capture time stays 30 ms behind now
+        camera = new ReplayCamera(file.getPath(), () -> Double.MAX_VALUE, Timer::getFPGATimestamp);
+        VisionPipeline.Estimator estimator = new VisionPipeline.Estimator() {
+            @Override
+            public Optional<Pose2d> samplePoseAt(double timestamp) {
+                return Optional.of(new Pose2d(4.5, 4.0, Rotation2d.kZero));
+            }
+
+            @Override
+            public double getYawRate() {
+                return 0.5;
+            }
+
+            @Override
+            public void addVisionMeasurement(Pose2d pose, double timestamp, Matrix<N3, N1> stdDevs) {
+                measurements++;
+            }
+        };
+        pipeline = new VisionPipeline(camera, estimator, new TelemetryPublisher(), null);
+    }
+
+    private static void writeRecording(File file) {
+        Random random = new Random(2025);
+        ReplayCamera.Recorder recorder = new ReplayCamera.Recorder(file);
+        VisionFrame frame = new VisionFrame();
+        for (int i = 0; i < kResults; i++) {
+            double angle = i * 0.01;
+            double arrival = i * 0.02;
+            frame.timestamp = arrival - kLatency;
+            frame.x = 4.5 + 2.5 * Math.cos(angle) + random.nextGaussian() * 0.02;
+            frame.y = 4.0 + 2.5 * Math.sin(angle) + random.nextGaussian() * 0.02;
+            frame.heading = random.nextGaussian() * 0.01;
+            frame.tagCount = 1 + random.nextInt(3);
+            for (int tag = 0; tag < frame.tagCount; tag++) {
+                frame.tagIds[tag] = 17 + random.nextInt(6);
+                frame.tagDistances[tag] = (float) (1.5 + random.nextDouble() * 2);
+                frame.tagAmbiguities[tag] = (float) (random.nextDouble() * 0.1);
+            }
+
+            // One in ten made bad: ambiguous, off the field, not a field tag, or far away. The
+            // ambiguity and distance limits only catch these on single tag results.
+            switch (i % 40) {
+                case 9:
+                    frame.tagAmbiguities[0] = 0.6f;
+                    break;
+                case 19:
+                    frame.x = -3;
+                    break;
+                case 29:
+                    frame.tagIds[0] = 40;
+                    break;
+                case 39:
+                    frame.tagDistances[0] = 9;
+                    break;
+                default:
+                    break;
+            }
+            recorder.record(arrival, frame);
+        }
+        recorder.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%nAccepted %d results,", pipeline.getAccepted());
+        for (VisionPipeline.Rejection rejection : VisionPipeline.Rejection.values()) {
+            System.out.printf(" %s %d", rejection, pipeline.getRejected(rejection));
+        }
+        System.out.printf(", %d measurements sent to the estimator%n", measurements);
+    }
+
+    /**
+     * One pass over the whole recording, counted per result.
+     */
+    @Benchmark
+    @OperationsPerInvocation(kResults)
+    public int processRecording() {
+        camera.rewind();
+        return pipeline.processAvailable();
+    }
+}
@@ -1,23 +1,34 @@
 package frc.robot;
 
-import static edu.wpi.first.units.Units.Degrees;
-import static edu.wpi.first.units.Units.Radians;
+import static edu.wpi.first.units.Units.MetersPerSecond;
 
+import java.util.List;
 import java.util.function.BooleanSupplier;
 import java.util.function.DoubleSupplier;
 
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
-import edu.wpi.first.wpilibj2.command.WaitCommand;
+import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 import frc.robot.Constants.Field.Branch;
+import frc.robot.generated.TunerConstants;
 import frc.robot.subsystems.CommandSwerveDrivetrain;
 import frc.robot.subsystems.Ejector;
 import frc.robot.subsystems.Elevator;
+import frc.robot.subsystems.TelemetryPublisher;
+import frc.robot.trajectory.BakedTrajectories;
+import frc.robot.trajectory.FollowTrajectory;
 
 public class Auto {
     
@@ -25,32 +36,70 @@ public class Auto {
     private final Ejector ejector;
     private final Elevator elevator;
     private final BooleanSupplier isRedAlliance;
-    private final Pose2d kBlueCenter = new Pose2d(new Translation2d(7.2, 4), new Rotation2d(Math.PI));
-    private final Pose2d kBlueLeft = new Pose2d(new Translation2d(7.2, 5.5), new Rotation2d(Math.PI));
-    private final Pose2d kBlueRight = new Pose2d(new Translation2d(7.2, 2.5), new Rotation2d(Math.PI));
-    private final Pose2d kRedCenter = new Pose2d(new Translation2d(10.2, 4), new Rotation2d());
-    private final Pose2d kRedLeft = new Pose2d(new Translation2d(10.2, 2.5), new Rotation2d());
-    private final Pose2d kRedRight = new Pose2d(new Translation2d(10.2, 5.5), new Rotation2d());
-
-    public Auto(CommandSwerveDrivetrain drivetrain, Ejector ejector, Elevator elevator, BooleanSupplier isRedAlliance) {
+    private final BakedTrajectories trajectories;
+    private final TelemetryPublisher.DoubleChannel scoreTimeChannel;
+
+    // How long before the elevator arrives the rollers start, so the coral leaves right at the setpoint
+    static final double kEjectLeadTime = 0.15;
+    // Keep the rollers going briefly once the coral clears the detector
+    static final double kEjectTail = 0.1;
+    static final double kEjectTimeout = 1;
+    // Longest the rollers wait on the prediction, so an elevator that stalls short doesn't hold up auto
+    static final double kArrivalTimeout = 2;
+    public static final Pose2d kBlueCenter = new Pose2d(new Translation2d(7.2, 4), new Rotation2d(Math.PI));
+    public static final Pose2d kBlueLeft = new Pose2d(new Translation2d(7.2, 5.5), new Rotation2d(Math.PI));
+    public static final Pose2d kBlueRight = new Pose2d(new Translation2d(7.2, 2.5), new Rotation2d(Math.PI));
+    public static final Pose2d kRedCenter = new Pose2d(new Translation2d(10.2, 4), new Rotation2d());
+    public static final Pose2d kRedLeft = new Pose2d(new Translation2d(10.2, 2.5), new Rotation2d());
+    public static final Pose2d kRedRight = new Pose2d(new Translation2d(10.2, 5.5), new Rotation2d());
+    // Blue poses first, then red in the same order. Baked trajectories refer to these by index.
+    public static final Pose2d[] kStartPoses = {kBlueCenter, kBlueLeft, kBlueRight, kRedCenter, kRedLeft, kRedRight};
+    // Headings for the fallback routines, built once so the suppliers don't allocate every loop
+    private static final Rotation2d kFacingDriverStation = Rotation2d.kPi;
+    private static final Rotation2d kLeftReefHeading = Rotation2d.fromDegrees(240);
+    private static final Rotation2d kRightReefHeading = Rotation2d.fromDegrees(120);
+    private final int[] kReefTags = {6, 7, 8, 9, 10, 11, 17, 18, 19, 20, 21, 22};
+
+    // Closed loop segment tuning, AutoSegmentSimulator models the segments with the same numbers
+    static final double kMaxSpeed = TunerConstants.kSpeedAt12Volts.in(MetersPerSecond);
+    // Fraction of max speed the fallback drives use, twice what the timed version could risk
+    static final double kFallbackSpeed = 0.4;
+    // Speed per meter left to go, and the floor so the last few centimeters don't crawl
+    static final double kDistanceGain = 2.5;
+    static final double kMinDriveSpeed = 0.25;
+    static final double kDistanceTolerance = 0.05;
+    static final double kHeadingTolerance = Math.toRadians(3);
+    static final double kSettledSpeed = 0.05;
+    static final double kSettledYawRate = 0.1;
+    // About what the timed fallbacks covered backing up at 20% speed for 1 s and 2.25 s
+    static final double kCenterBackupDistance = 0.8;
+    static final double kSideBackupDistance = 1.9;
+    // Safety timeouts, the old fixed durations
+    static final double kStartTimeout = 0.5;
+    static final double kCenterBackupTimeout = 1;
+    static final double kSideBackupTimeout = 2.25;
+    static final double kRotateTimeout = 1;
+    static final double kSettleTimeout = 0.75;
+
+    public Auto(CommandSwerveDrivetrain drivetrain, Ejector ejector, Elevator elevator, BooleanSupplier isRedAlliance, BakedTrajectories trajectories, TelemetryPublisher telemetry) {
         this.drivetrain = drivetrain;
         this.ejector = ejector;
         this.elevator = elevator;
         this.isRedAlliance = isRedAlliance;
+        this.trajectories = trajectories;
+        scoreTimeChannel = telemetry.addDouble("Score Time (s)", TelemetryPublisher.Rate.kDiagnostic, 0.001);
     }
 
     public Command centerOnePiece(){
         return Commands.sequence(
-            new WaitCommand(0.5),
+            waitForOdometry(kStartTimeout),
             new InstantCommand(() -> drivetrain.resetPose(isRedAlliance.getAsBoolean() ? kRedCenter : kBlueCenter)),
-            drivetrain.fieldCentricFacingAngle(
-                () -> -0.2,
-                () -> 0,
-                () -> new Rotation2d(Degrees.of(180).in(Radians))).withTimeout(1),
-            drivetrain.stop().withTimeout(0.75),
-            drivetrain.goToPose(() -> Constants.Field.getWaypoint(isRedAlliance.getAsBoolean() ? 10 : 21, Branch.kLeft), isRedAlliance),
+            approachReef(0, 21, 3, 10, Branch.kLeft, Commands.sequence(
+                driveDistance(-kFallbackSpeed, 0, kCenterBackupDistance, kFacingDriverStation, kCenterBackupTimeout),
+                settle(kSettleTimeout))),
+            drivetrain.goToPose(() -> ReefWaypoints.getPose(isRedAlliance.getAsBoolean() ? 10 : 21, Branch.kLeft), isRedAlliance),
             Commands.deadline(
-                scoreCoral(() -> Constants.ElevatorConstants.kL4), 
+                scoreCoralPipelined(() -> Constants.ElevatorConstants.kL4), 
                 drivetrain.brake()
             )
         );
@@ -58,19 +107,14 @@ public class Auto {
 
     public Command leftOnePiece(){
         return Commands.sequence(
-            new WaitCommand(0.5),
+            waitForOdometry(kStartTimeout),
             new InstantCommand(() -> drivetrain.resetPose(isRedAlliance.getAsBoolean() ? kRedLeft : kBlueLeft)),
-            drivetrain.fieldCentricFacingAngle(
-                () -> -0.2,
-                () -> 0,
-                () -> new Rotation2d(Degrees.of(180).in(Radians))).withTimeout(2.25),
-                drivetrain.fieldCentricFacingAngle(
-                    () -> 0,
-                    () -> 0,
-                    () -> new Rotation2d(Degrees.of(240).in(Radians))).withTimeout(1),
-            drivetrain.goToPose(() -> Constants.Field.getWaypoint(isRedAlliance.getAsBoolean() ? 11 : 20, Branch.kLeft), isRedAlliance),
+            approachReef(1, 20, 4, 11, Branch.kLeft, Commands.sequence(
+                driveDistance(-kFallbackSpeed, 0, kSideBackupDistance, kFacingDriverStation, kSideBackupTimeout),
+                rotateToHeading(kLeftReefHeading, kRotateTimeout))),
+            drivetrain.goToPose(() -> ReefWaypoints.getPose(isRedAlliance.getAsBoolean() ? 11 : 20, Branch.kLeft), isRedAlliance),
             Commands.deadline(
-                scoreCoral(() -> Constants.ElevatorConstants.kL4), 
+                scoreCoralPipelined(() -> Constants.ElevatorConstants.kL4), 
                 drivetrain.brake()
             )
         );
@@ -78,26 +122,211 @@ public class Auto {
 
     public Command rightOnePiece(){
         return Commands.sequence(
-            new WaitCommand(0.5),
+            waitForOdometry(kStartTimeout),
             new InstantCommand(() -> drivetrain.resetPose(isRedAlliance.getAsBoolean() ? kRedRight : kBlueRight)),
-            drivetrain.fieldCentricFacingAngle(
-                () -> -0.2,
-                () -> 0,
-                () -> new Rotation2d(Degrees.of(180).in(Radians))).withTimeout(2.25),
-                drivetrain.fieldCentricFacingAngle(
-                    () -> 0,
-                    () -> 0,
-                    () -> new Rotation2d(Degrees.of(120).in(Radians))).withTimeout(1),
-            drivetrain.goToPose(() -> Constants.Field.getWaypoint(isRedAlliance.getAsBoolean() ? 9 :22, Branch.kLeft), isRedAlliance),
+            approachReef(2, 22, 5, 9, Branch.kLeft, Commands.sequence(
+                driveDistance(-kFallbackSpeed, 0, kSideBackupDistance, kFacingDriverStation, kSideBackupTimeout),
+                rotateToHeading(kRightReefHeading, kRotateTimeout))),
+            drivetrain.goToPose(() -> ReefWaypoints.getPose(isRedAlliance.getAsBoolean() ? 9 :22, Branch.kLeft), isRedAlliance),
             Commands.deadline(
-                scoreCoral(() -> Constants.ElevatorConstants.kL4), 
+                scoreCoralPipelined(() -> Constants.ElevatorConstants.kL4), 
                 drivetrain.brake()
             )
         );
     }
 
     /**
-     * Creates a command sequence to load coral.
+     * Creates a command that waits for the drivetrain's odometry to report its first sample, so
+     * the pose reset isn't lost to a drivetrain that hasn't started yet.
+     * @param timeout Longest to wait, in seconds.
+     * @return Runnable command.
+     */
+    public Command waitForOdometry(double timeout) {
+        return Commands.waitUntil(() -> drivetrain.getState().SuccessfulDaqs > 0)
+            .withTimeout(timeout)
+            .withName("Wait For Odometry");
+    }
+
+    /**
+     * Creates a command that drives a measured distance in a straight line while holding a
+     * heading. Distance is measured by odometry from where the command starts. It slows down
+     * approaching the end and finishes once within tolerance.
+     * @param x X speed, fraction of max speed in the operator's frame. Sets the direction and top speed.
+     * @param y Y speed, fraction of max speed in the operator's frame.
+     * @param distance Distance to drive, meters.
+     * @param heading Heading to hold.
+     * @param timeout Safety timeout, in seconds.
+     * @return Runnable command.
+     */
+    public Command driveDistance(double x, double y, double distance, Rotation2d heading, double timeout) {
+        double fraction = Math.hypot(x, y);
+        double ux = x / fraction;
+        double uy = y / fraction;
+        double topSpeed = fraction * kMaxSpeed;
+        // Start position and the speed worked out this loop, kept here so the suppliers don't allocate
+        double[] state = new double[3];
+        DoubleSupplier remaining = () -> {
+            Pose2d pose = drivetrain.getState().Pose;
+            return distance - Math.hypot(pose.getX() - state[0], pose.getY() - state[1]);
+        };
+
+        return drivetrain.fieldCentricFacingAngle(
+                () -> {
+                    double speed = Math.max(kMinDriveSpeed, Math.min(topSpeed, kDistanceGain * remaining.getAsDouble()));
+                    state[2] = speed / kMaxSpeed;
+                    return ux * state[2];
+                },
+                () -> uy * state[2],
+                () -> heading)
+            .beforeStarting(() -> {
+                Pose2d pose = drivetrain.getState().Pose;
+                state[0] = pose.getX();
+                state[1] = pose.getY();
+            })
+            .until(() -> remaining.getAsDouble() <= kDistanceTolerance)
+            .withTimeout(timeout)
+            .withName("Drive Distance");
+    }
+
+    /**
+     * Creates a command that turns in place to a heading and finishes once it's there and
+     * no longer turning.
+     * @param heading Heading to turn to.
+     * @param timeout Safety timeout, in seconds.
+     * @return Runnable command.
+     */
+    public Command rotateToHeading(Rotation2d heading, double timeout) {
+        return drivetrain.fieldCentricFacingAngle(() -> 0, () -> 0, () -> heading)
+            .until(() -> {
+                SwerveDriveState state = drivetrain.getState();
+                double error = MathUtil.angleModulus(heading.getRadians() - state.Pose.getRotation().getRadians());
+                return Math.abs(error) <= kHeadingTolerance && Math.abs(state.Speeds.omegaRadiansPerSecond) <= kSettledYawRate;
+            })
+            .withTimeout(timeout)
+            .withName("Rotate To Heading");
+    }
+
+    /**
+     * Creates a command that stops the drivetrain and finishes once it has come to rest.
+     * @param timeout Safety timeout, in seconds.
+     * @return Runnable command.
+     */
+    public Command settle(double timeout) {
+        return drivetrain.stop()
+            .until(() -> {
+                SwerveDriveState state = drivetrain.getState();
+                return Math.hypot(state.Speeds.vxMetersPerSecond, state.Speeds.vyMetersPerSecond) <= kSettledSpeed
+                    && Math.abs(state.Speeds.omegaRadiansPerSecond) <= kSettledYawRate;
+            })
+            .withTimeout(timeout)
+            .withName("Settle");
+    }
+
+    /**
+     * Creates a multi-piece routine from a plan: score each target, then drive to its station
+     * while loading before heading to the next one. The alliance is read when the routine is
+     * built, AutoRegistry rebuilds it if the alliance changes.
+     * @param plan Targets to score.
+     * @return Runnable command.
+     */
+    public Command runPlan(AutoPlan plan) {
+        boolean red = isRedAlliance.getAsBoolean();
+        Pose2d start = plan.getStartPose(red);
+        List<AutoPlan.Target> targets = plan.getTargets();
+
+        SequentialCommandGroup routine = new SequentialCommandGroup(
+            new InstantCommand(() -> drivetrain.resetPose(start)));
+
+        for (int i = 0; i < targets.size(); i++) {
+            AutoPlan.Target target = targets.get(i);
+            Pose2d waypoint = ReefWaypoints.getPose(AutoPlan.getTag(target, red), target.branch());
+            double level = target.level();
+
+            routine.addCommands(
+                drivetrain.goToPose(() -> waypoint, isRedAlliance),
+                Commands.deadline(
+                    scoreCoralPipelined(() -> level),
+                    drivetrain.brake()));
+
+            // No reload after the last piece
+            if (i < targets.size() - 1) {
+                Pose2d station = AutoPlan.getStationPose(target.station(), red);
+                routine.addCommands(Commands.deadline(
+                    loadCoral(),
+                    drivetrain.goToPose(() -> station, isRedAlliance).andThen(drivetrain.brake())));
+            }
+        }
+
+        return routine.withName(plan.getName());
+    }
+
+    /**
+     * Creates the drive from a start pose up to a reef waypoint. Uses the baked trajectories
+     * when both alliances' versions are available, otherwise the given untracked sequence.
+     * goToPose still does the final alignment afterwards.
+     * @param blueStart Index of the blue start pose in kStartPoses.
+     * @param blueTag Reef tag on the blue side.
+     * @param redStart Index of the red start pose in kStartPoses.
+     * @param redTag Reef tag on the red side.
+     * @param branch Reef branch.
+     * @param fallback Sequence to run when no trajectory was baked.
+     * @return Runnable command.
+     */
+    private Command approachReef(int blueStart, int blueTag, int redStart, int redTag, Branch branch, Command fallback) {
+        BakedTrajectories.Trajectory blue = trajectories.find(blueStart, blueTag, branch);
+        BakedTrajectories.Trajectory red = trajectories.find(redStart, redTag, branch);
+        if (blue == null || red == null) {
+            return fallback;
+        }
+
+        return Commands.either(
+            FollowTrajectory.create(drivetrain, red, isRedAlliance),
+            FollowTrajectory.create(drivetrain, blue, isRedAlliance),
+            isRedAlliance);
+    }
+
+    /**
+     * Runs the pose and kinematics math the auto routines depend on, and builds each routine's
+     * command tree without scheduling it, so the JIT has compiled both before autonomous starts.
+     * No command is initialized or executed, so no subsystem is sent a request. Safe to call
+     * while disabled.
+     * @param passes Number of passes over every start pose and reef waypoint, and over the routines.
+     * @return Sum of the results, so the work can't be optimized away.
+     */
+    public double warmUp(int passes) {
+        SwerveDriveKinematics kinematics = drivetrain.getKinematics();
+        double sink = 0;
+
+        for (int pass = 0; pass < passes; pass++) {
+            Branch branch = (pass & 1) == 0 ? Branch.kLeft : Branch.kRight;
+            for (Pose2d start : kStartPoses) {
+                for (int tag : kReefTags) {
+                    Pose2d target = ReefWaypoints.getPose(tag, branch);
+                    Transform2d error = target.minus(start);
+                    ChassisSpeeds speeds = ChassisSpeeds.fromFieldRelativeSpeeds(
+                        error.getX(),
+                        error.getY(),
+                        error.getRotation().getRadians(),
+                        start.getRotation());
+                    SwerveModuleState[] states = kinematics.toSwerveModuleStates(speeds);
+                    SwerveDriveKinematics.desaturateWheelSpeeds(states, 1);
+                    sink += states[0].speedMetersPerSecond + start.getTranslation().getDistance(target.getTranslation());
+                }
+            }
+
+            // Construction only, the same paths AutoRegistry takes when the selection changes
+            sink += centerOnePiece().getRequirements().size();
+            sink += leftOnePiece().getRequirements().size();
+            sink += rightOnePiece().getRequirements().size();
+            for (AutoPlan plan : AutoPlan.kPlans) {
+                sink += runPlan(plan).getRequirements().size();
+            }
+        }
+        return sink;
+    }
+
+    /**
+     * Creates a command sequence to load coral. Marks the start of loading on the cycle timeline.
      * @return Runnable command.
      */
     public Command loadCoral() {
@@ -105,7 +334,8 @@ public class Auto {
             .parallel(
                 elevator.goToSetpoint(() -> Constants.ElevatorConstants.kLoad),
                 ejector.intake())
-            .until(() -> ejector.hasCoral());
+            .until(() -> ejector.hasCoral())
+            .beforeStarting(() -> CycleTimeline.mark(CycleTimeline.Event.kLoadStart));
     }
 
     public Command reverseCoralAtLoadHeight() {
@@ -121,12 +351,46 @@ public class Auto {
      * @return Runnable command.
      */
     public Command scoreCoral(DoubleSupplier setPoint) {
-        return Commands.sequence(
+        return LoopProfiler.profile(Commands.sequence(
             elevator.goToSetpoint(setPoint).until(() -> elevator.atSetpoint()),
             Commands.parallel(
                 elevator.goToSetpoint(setPoint),
                 ejector.eject()
-            ).withTimeout(1)
-        ).withName("Score Coral");
+            ).withTimeout(kEjectTimeout)
+        ).withName("Score Coral (Sequential)"));
+    }
+
+    /**
+     * Creates a command to score coral that overlaps the ejection with the end of the elevator
+     * move. The rollers start once the elevator is predicted to arrive within the eject lead
+     * time, and the command ends as soon as the coral has left instead of after a fixed time.
+     * The coral leaving closes the cycle on the cycle timeline.
+     * @return Runnable command.
+     */
+    public Command scoreCoralPipelined(DoubleSupplier setPoint) {
+        ElevatorArrivalPredictor predictor = new ElevatorArrivalPredictor(elevator, setPoint);
+        Timer scoreTimer = new Timer();
+
+        return LoopProfiler.profile(Commands.deadline(
+            Commands.sequence(
+                Commands.run(predictor::update)
+                    .until(() -> predictor.getTimeToArrival() <= kEjectLeadTime)
+                    .withTimeout(kArrivalTimeout),
+                Commands.sequence(
+                    ejector.eject().until(() -> !ejector.hasCoral()),
+                    ejector.eject().withTimeout(kEjectTail)
+                ).withTimeout(kEjectTimeout)
+            ),
+            elevator.goToSetpoint(setPoint)
+        ).beforeStarting(() -> {
+            predictor.reset();
+            scoreTimer.restart();
+        }).finallyDo(() -> {
+            scoreTimeChannel.set(scoreTimer.get());
+            if (!ejector.hasCoral()) {
+                CycleTimeline.mark(CycleTimeline.Event.kEjectComplete);
+            }
+        })
+        .withName("Score Coral"));
     }
 }
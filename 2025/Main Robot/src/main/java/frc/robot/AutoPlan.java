@@ -0,0 +1,111 @@
+package frc.robot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.Constants.Field.Branch;
+
+/**
+ * A multi-piece autonomous routine written as a list of scoring targets. Auto.runPlan() turns a
+ * plan into commands, and AutoPlanSimulator estimates how many pieces it scores. Everything is
+ * written from the blue alliance's side and mirrored for red.
+ */
+public class AutoPlan {
+
+    public enum Station {
+        kLeft, kRight
+    }
+
+    /**
+     * One piece to score.
+     * @param blueTag Reef tag on the blue side, mirrored for red.
+     * @param branch Reef branch.
+     * @param level Elevator setpoint to score at.
+     * @param station Station to reload from after scoring.
+     */
+    public record Target(int blueTag, Branch branch, double level, Station station) {}
+
+    // Where the robot stops to load at each station on the blue side
+    public static final Pose2d kBlueLeftStation = new Pose2d(
+        new Translation2d(1.35, 6.95), Constants.Field.kLeftLoadStationHeading);
+    public static final Pose2d kBlueRightStation = new Pose2d(
+        new Translation2d(1.35, 1.10), Constants.Field.kRightLoadStationHeading);
+
+    public static final AutoPlan kLeftThreePiece = new AutoPlan("Left Three Piece", 1)
+        .score(20, Branch.kLeft, Constants.ElevatorConstants.kL4, Station.kLeft)
+        .score(19, Branch.kRight, Constants.ElevatorConstants.kL4, Station.kLeft)
+        .score(19, Branch.kLeft, Constants.ElevatorConstants.kL4, Station.kLeft);
+
+    public static final AutoPlan kRightThreePiece = new AutoPlan("Right Three Piece", 2)
+        .score(22, Branch.kLeft, Constants.ElevatorConstants.kL4, Station.kRight)
+        .score(17, Branch.kLeft, Constants.ElevatorConstants.kL4, Station.kRight)
+        .score(17, Branch.kRight, Constants.ElevatorConstants.kL4, Station.kRight);
+
+    public static final AutoPlan kCenterTwoPiece = new AutoPlan("Center Two Piece", 0)
+        .score(21, Branch.kLeft, Constants.ElevatorConstants.kL4, Station.kLeft)
+        .score(20, Branch.kRight, Constants.ElevatorConstants.kL4, Station.kLeft);
+
+    public static final List<AutoPlan> kPlans = List.of(kLeftThreePiece, kRightThreePiece, kCenterTwoPiece);
+
+    private final String name;
+    private final int blueStart;
+    private final List<Target> targets = new ArrayList<>();
+
+    /**
+     * Creates an empty plan.
+     * @param name Name shown on the dashboard.
+     * @param blueStart Index of the blue start pose in Auto.kStartPoses. The red start is the
+     *     matching pose in the red half of the array.
+     */
+    public AutoPlan(String name, int blueStart) {
+        this.name = name;
+        this.blueStart = blueStart;
+    }
+
+    /**
+     * Adds a piece to score.
+     * @return This plan, for chaining.
+     */
+    public AutoPlan score(int blueTag, Branch branch, double level, Station station) {
+        targets.add(new Target(blueTag, branch, level, station));
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Pose2d getStartPose(boolean isRedAlliance) {
+        return Auto.kStartPoses[isRedAlliance ? blueStart + Auto.kStartPoses.length / 2 : blueStart];
+    }
+
+    public List<Target> getTargets() {
+        return Collections.unmodifiableList(targets);
+    }
+
+    /**
+     * Gets the tag to score on for the given alliance.
+     */
+    public static int getTag(Target target, boolean isRedAlliance) {
+        return isRedAlliance ? ReefWaypoints.getMirroredTag(target.blueTag()) : target.blueTag();
+    }
+
+    /**
+     * Gets the loading pose for the given alliance. Red stations are the blue ones rotated about
+     * the field center, so the left station stays on the driver's left.
+     */
+    public static Pose2d getStationPose(Station station, boolean isRedAlliance) {
+        Pose2d blue = station == Station.kLeft ? kBlueLeftStation : kBlueRightStation;
+        if (!isRedAlliance) {
+            return blue;
+        }
+        return new Pose2d(
+            ReefWaypoints.kFieldLength - blue.getX(),
+            ReefWaypoints.kFieldWidth - blue.getY(),
+            blue.getRotation().rotateBy(Rotation2d.kPi));
+    }
+}
@@ -0,0 +1,115 @@
+package frc.robot;
+
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.subsystems.Ejector;
+import frc.robot.subsystems.EjectorIOSim;
+import frc.robot.subsystems.StatusFrameManager;
+import frc.robot.subsystems.TelemetryPublisher;
+
+/**
+ * Headless estimate of how every AutoPlan performs in the autonomous period. The intake and
+ * eject times come from the Ejector's real commands run against EjectorIOSim, with the clock
+ * stepped by SimHarness like MechanismSimulator. The drivetrain and Elevator subsystems aren't
+ * part of this project, so runPlan() itself can't be run here: drive legs use a trapezoidal
+ * profile over the straight-line distance stretched by a path factor, and elevator moves run at a
+ * fixed speed. The drive and elevator constants should be updated from real robot measurements.
+ */
+public final class AutoPlanSimulator {
+    private static final double kAutoLength = 15;
+
+    private static final double kMaxVelocity = 3.0;
+    private static final double kMaxAcceleration = 2.5;
+    // Real paths curve around the reef and other robots
+    private static final double kPathFactor = 1.2;
+    // goToPose settling at the end of each leg
+    private static final double kAlignTime = 0.35;
+
+    // Elevator travel in elevator height units per second, plus settling time
+    private static final double kElevatorSpeed = 1.5;
+    private static final double kElevatorSettle = 0.1;
+    // Human player feed, before the intake starts pulling the coral in
+    private static final double kFeedTime = 0.5;
+
+    private AutoPlanSimulator() {}
+
+    public static void main(String[] args) {
+        SimHarness.startEnabled();
+        ReefWaypoints.load();
+
+        TelemetryPublisher telemetry = new TelemetryPublisher();
+        Ejector ejector = new Ejector(new EjectorIOSim(), telemetry, new StatusFrameManager(telemetry));
+        double intakeTime = SimHarness.run(ejector.intake(), () -> false);
+        double ejectTime = SimHarness.run(ejector.eject(), () -> !ejector.hasCoral()) + Auto.kEjectTail;
+        System.out.printf("Simulated ejector: intake %.2f s, eject %.2f s%n%n", intakeTime, ejectTime);
+
+        for (AutoPlan plan : AutoPlan.kPlans) {
+            System.out.println(simulate(plan, kFeedTime + intakeTime, ejectTime));
+        }
+        System.exit(0);
+    }
+
+    /**
+     * Simulates a plan from the blue side.
+     * @param plan Plan to simulate.
+     * @param loadTime Seconds from arriving at the station to having coral.
+     * @param ejectTime Seconds from the rollers starting to the coral being clear.
+     * @return Report with the pieces scored in the auto period and the time of every cycle.
+     */
+    public static String simulate(AutoPlan plan, double loadTime, double ejectTime) {
+        StringBuilder report = new StringBuilder(plan.getName()).append('\n');
+        List<AutoPlan.Target> targets = plan.getTargets();
+
+        Pose2d position = plan.getStartPose(false);
+        double elevator = Constants.ElevatorConstants.kStow;
+        double time = 0;
+        int scored = 0;
+
+        for (int i = 0; i < targets.size(); i++) {
+            AutoPlan.Target target = targets.get(i);
+            double cycleStart = time;
+
+            // Load leg, every piece after the first. The elevator drops while driving.
+            if (i > 0) {
+                Pose2d station = AutoPlan.getStationPose(targets.get(i - 1).station(), false);
+                double elevatorDown = elevatorTime(elevator, Constants.ElevatorConstants.kLoad);
+                time += Math.max(driveTime(position, station), elevatorDown) + loadTime;
+                position = station;
+                elevator = Constants.ElevatorConstants.kLoad;
+            }
+
+            // Score leg, with the rollers starting just before the elevator arrives
+            Pose2d waypoint = ReefWaypoints.getPose(target.blueTag(), target.branch());
+            time += driveTime(position, waypoint);
+            time += elevatorTime(elevator, target.level()) - Auto.kEjectLeadTime + ejectTime;
+            position = waypoint;
+            elevator = target.level();
+
+            boolean inTime = time <= kAutoLength;
+            if (inTime) {
+                scored++;
+            }
+            report.append(String.format("  piece %d: cycle %.2f s, done at %.2f s%s%n",
+                i + 1, time - cycleStart, time, inTime ? "" : " (after auto ends)"));
+        }
+
+        report.append(String.format("  %d of %d pieces scored in %.0f s%n", scored, targets.size(), kAutoLength));
+        return report.toString();
+    }
+
+    private static double driveTime(Pose2d from, Pose2d to) {
+        double distance = from.getTranslation().getDistance(to.getTranslation()) * kPathFactor;
+
+        // Triangle profile if the robot can't reach full speed over this distance
+        double accelDistance = kMaxVelocity * kMaxVelocity / kMaxAcceleration;
+        double profile = distance < accelDistance
+            ? 2 * Math.sqrt(distance / kMaxAcceleration)
+            : kMaxVelocity / kMaxAcceleration + distance / kMaxVelocity;
+        return profile + kAlignTime;
+    }
+
+    private static double elevatorTime(double from, double to) {
+        return Math.abs(to - from) / kElevatorSpeed + kElevatorSettle;
+    }
+}
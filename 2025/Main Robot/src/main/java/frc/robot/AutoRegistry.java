@@ -0,0 +1,140 @@
+package frc.robot;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.WrapperCommand;
+import frc.robot.subsystems.TelemetryPublisher;
+
+/**
+ * Holds the autonomous routines by name and only builds the one that is selected. The routine
+ * is rebuilt whenever the dashboard selection or the alliance changes, so the command handed
+ * to autonomousInit is always ready to go.
+ */
+public class AutoRegistry {
+    // Number of loops at the start of auto that get timed
+    private static final int kTimedLoops = 50;
+
+    private final SendableChooser<String> chooser = new SendableChooser<>();
+    private final Map<String, Supplier<Command>> routines = new HashMap<>();
+    private final BooleanSupplier isRedAlliance;
+
+    private final TelemetryPublisher.DoubleChannel buildTimeChannel;
+    private final TelemetryPublisher.DoubleChannel firstLoopChannel;
+    private final TelemetryPublisher.DoubleChannel earlyMaxLoopChannel;
+
+    private String builtName = null;
+    private boolean builtForRed = false;
+    private Command built = null;
+
+    public AutoRegistry(BooleanSupplier isRedAlliance, TelemetryPublisher telemetry) {
+        this.isRedAlliance = isRedAlliance;
+        buildTimeChannel = telemetry.addDouble("Auto Build Time (ms)", TelemetryPublisher.Rate.kDiagnostic, 0.001);
+        firstLoopChannel = telemetry.addDouble("Auto First Loop (ms)", TelemetryPublisher.Rate.kDiagnostic, 0.001);
+        earlyMaxLoopChannel = telemetry.addDouble("Auto Early Max Loop (ms)", TelemetryPublisher.Rate.kDiagnostic, 0.001);
+    }
+
+    /**
+     * Adds the routine that is selected when nothing else is.
+     * @param name Name shown on the dashboard.
+     * @param routine Builds the routine's command, may return null for no auto.
+     */
+    public void setDefaultOption(String name, Supplier<Command> routine) {
+        routines.put(name, routine);
+        chooser.setDefaultOption(name, name);
+    }
+
+    /**
+     * Adds a selectable routine.
+     * @param name Name shown on the dashboard.
+     * @param routine Builds the routine's command.
+     */
+    public void addOption(String name, Supplier<Command> routine) {
+        routines.put(name, routine);
+        chooser.addOption(name, name);
+    }
+
+    /**
+     * Sends the chooser to the dashboard.
+     * @param key SmartDashboard key.
+     */
+    public void publish(String key) {
+        SmartDashboard.putData(key, chooser);
+    }
+
+    /**
+     * Rebuilds the selected routine if the selection or alliance changed since the last build.
+     * Meant to be called every loop while disabled.
+     */
+    public void update() {
+        String selected = chooser.getSelected();
+        boolean red = isRedAlliance.getAsBoolean();
+        if (selected == null || (selected.equals(builtName) && red == builtForRed)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Command routine = routines.get(selected).get();
+        built = routine == null ? null : new TimedAuto(routine);
+        builtName = selected;
+        builtForRed = red;
+
+        buildTimeChannel.set((System.nanoTime() - start) / 1e6);
+    }
+
+    /**
+     * Gets the selected routine, building it first if it is out of date.
+     * @return Selected routine, or null if no auto is selected.
+     */
+    public Command getSelected() {
+        update();
+        return built;
+    }
+
+    /**
+     * Times the first loops of a routine, which are the ones that run cold.
+     */
+    private class TimedAuto extends WrapperCommand {
+        private int loops = 0;
+        private long maxNanos = 0;
+
+        TimedAuto(Command command) {
+            super(command);
+        }
+
+        @Override
+        public void initialize() {
+            loops = 0;
+            maxNanos = 0;
+            super.initialize();
+        }
+
+        @Override
+        public void execute() {
+            if (loops >= kTimedLoops) {
+                super.execute();
+                return;
+            }
+
+            long start = System.nanoTime();
+            super.execute();
+            long elapsed = System.nanoTime() - start;
+            maxNanos = Math.max(maxNanos, elapsed);
+
+            if (loops == 0) {
+                firstLoopChannel.set(elapsed / 1e6);
+            }
+            if (++loops == kTimedLoops) {
+                earlyMaxLoopChannel.set(maxNanos / 1e6);
+                DataLogManager.log("Auto " + getName() + " max execute over first " + kTimedLoops
+                    + " loops: " + maxNanos / 1000 + " us");
+            }
+        }
+    }
+}
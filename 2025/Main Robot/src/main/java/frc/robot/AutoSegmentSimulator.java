@@ -0,0 +1,128 @@
+package frc.robot;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.wpilibj.TimedRobot;
+
+/**
+ * Headless comparison of the one piece routines' fallback segments, the old fixed durations
+ * against the closed loop segments in Auto that finish on arrival. Only the part before
+ * goToPose is compared, the rest of each routine is the same either way. The drivetrain is a
+ * point mass with acceleration limits, commanded once per loop with the same control law and
+ * tolerances Auto uses.
+ *
+ * <p>Also prints how far the timed backups drove, to check Auto's backup distances against.
+ */
+public final class AutoSegmentSimulator {
+    private static final double kDt = TimedRobot.kDefaultPeriod;
+    // Stock auto speed the timed fallbacks used
+    private static final double kTimedSpeed = 0.2;
+    private static final double kDriveAcceleration = 4.0;
+    // Heading controller, radians per second per radian of error, and its limits
+    private static final double kHeadingGain = 6.0;
+    private static final double kMaxYawRate = 3.0;
+    private static final double kYawAcceleration = 12.0;
+    // The drivetrain's odometry is already running when auto starts, the wait ends on the first loop
+    private static final double kOdometryWait = kDt;
+    // Start headings are all facing the driver station, the side routines turn 60 degrees
+    private static final double kStartHeading = Math.PI;
+
+    private AutoSegmentSimulator() {}
+
+    public static void main(String[] args) {
+        System.out.printf("Timed backups covered %.2f m in %.2f s and %.2f m in %.2f s%n%n",
+            timedDistance(Auto.kCenterBackupTimeout), Auto.kCenterBackupTimeout,
+            timedDistance(Auto.kSideBackupTimeout), Auto.kSideBackupTimeout);
+
+        double centerTimed = Auto.kStartTimeout + Auto.kCenterBackupTimeout + Auto.kSettleTimeout;
+        double[] backup = drive(Auto.kCenterBackupDistance, Auto.kCenterBackupTimeout);
+        double centerClosed = kOdometryWait + backup[0] + settle(backup[1], Auto.kSettleTimeout);
+        report("Center one piece", centerTimed, centerClosed);
+
+        double sideTimed = Auto.kStartTimeout + Auto.kSideBackupTimeout + Auto.kRotateTimeout;
+        double sideBackup = drive(Auto.kSideBackupDistance, Auto.kSideBackupTimeout)[0];
+        report("Left one piece", sideTimed,
+            kOdometryWait + sideBackup + rotate(Math.toRadians(240), Auto.kRotateTimeout));
+        report("Right one piece", sideTimed,
+            kOdometryWait + sideBackup + rotate(Math.toRadians(120), Auto.kRotateTimeout));
+    }
+
+    private static void report(String name, double timed, double closed) {
+        System.out.printf("%s:%n", name);
+        System.out.printf("  fixed timeouts:   %.2f s%n", timed);
+        System.out.printf("  closed loop:      %.2f s%n", closed);
+        System.out.printf("  saved:            %.2f s (%.0f%%)%n", timed - closed, (timed - closed) / timed * 100);
+    }
+
+    private static double timedDistance(double duration) {
+        double target = kTimedSpeed * Auto.kMaxSpeed;
+        double speed = 0;
+        double distance = 0;
+        for (double time = 0; time < duration; time += kDt) {
+            speed = approach(speed, target, kDriveAcceleration * kDt);
+            distance += speed * kDt;
+        }
+        return distance;
+    }
+
+    /**
+     * Drives a distance the way Auto.driveDistance() does.
+     * @param distance Distance to drive, meters.
+     * @param timeout Safety timeout, seconds.
+     * @return Time taken and the speed when it finished.
+     */
+    private static double[] drive(double distance, double timeout) {
+        double topSpeed = Auto.kFallbackSpeed * Auto.kMaxSpeed;
+        double speed = 0;
+        double position = 0;
+        double time = 0;
+        while (time < timeout && distance - position > Auto.kDistanceTolerance) {
+            double target = Math.max(Auto.kMinDriveSpeed, Math.min(topSpeed, Auto.kDistanceGain * (distance - position)));
+            speed = approach(speed, target, kDriveAcceleration * kDt);
+            position += speed * kDt;
+            time += kDt;
+        }
+        return new double[] {time, speed};
+    }
+
+    /**
+     * Stops the way Auto.settle() does.
+     * @param speed Speed at the start, meters per second.
+     * @param timeout Safety timeout, seconds.
+     * @return Time taken.
+     */
+    private static double settle(double speed, double timeout) {
+        double time = 0;
+        while (time < timeout && speed > Auto.kSettledSpeed) {
+            speed = approach(speed, 0, kDriveAcceleration * kDt);
+            time += kDt;
+        }
+        return time;
+    }
+
+    /**
+     * Turns the way Auto.rotateToHeading() does.
+     * @param heading Heading to turn to, radians.
+     * @param timeout Safety timeout, seconds.
+     * @return Time taken.
+     */
+    private static double rotate(double heading, double timeout) {
+        double angle = kStartHeading;
+        double rate = 0;
+        double time = 0;
+        while (time < timeout) {
+            double error = MathUtil.angleModulus(heading - angle);
+            if (Math.abs(error) <= Auto.kHeadingTolerance && Math.abs(rate) <= Auto.kSettledYawRate) {
+                break;
+            }
+            double target = MathUtil.clamp(kHeadingGain * error, -kMaxYawRate, kMaxYawRate);
+            rate = approach(rate, target, kYawAcceleration * kDt);
+            angle += rate * kDt;
+            time += kDt;
+        }
+        return time;
+    }
+
+    private static double approach(double value, double target, double step) {
+        return value + MathUtil.clamp(target - value, -step, step);
+    }
+}
@@ -0,0 +1,211 @@
+package frc.robot;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleSupplier;
+
+import com.ctre.phoenix6.Utils;
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.util.datalog.DataLog;
+import edu.wpi.first.util.datalog.DoubleLogEntry;
+import edu.wpi.first.util.datalog.RawLogEntry;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+
+/**
+ * Binary on-robot log for drivetrain and mechanism data. Samples are copied as primitives into
+ * preallocated ring buffers by the odometry thread and the main loop, and a background thread
+ * drains them into the DataLog as struct-encoded Pose2d, SwerveModuleState[] and ChassisSpeeds
+ * plus plain doubles. Nothing allocates per sample. The DataLog's own writer thread takes care
+ * of getting the data onto the USB stick or disk.
+ */
+public class BinaryTelemetryLog extends SubsystemBase {
+    private static final int kModules = 4;
+    // timestamp, pose x, y, theta, per module speed and angle, chassis vx, vy, omega
+    private static final int kDriveStride = 1 + 3 + kModules * 2 + 3;
+    private static final int kDriveCapacity = 1024; // about 4 seconds at 250 Hz
+    private static final int kMechanismCapacity = 256;
+    private static final long kWriterPeriodNanos = 20_000_000;
+
+    private final DataLog log;
+
+    // Drive ring, written only by the odometry thread and read only by the writer thread. The
+    // tails are volatile too, the producers read them to check for room.
+    private final double[] driveRing = new double[kDriveCapacity * kDriveStride];
+    private volatile long driveHead = 0;
+    private volatile long driveTail = 0;
+    private volatile long droppedDriveSamples = 0;
+
+    // Mechanism ring, written only by the main loop and read only by the writer thread
+    private final ArrayList<DoubleSupplier> mechanismSources = new ArrayList<>();
+    private final ArrayList<DoubleLogEntry> mechanismEntries = new ArrayList<>();
+    private double[] mechanismRing = new double[0];
+    private int mechanismStride = 1;
+    private volatile long mechanismHead = 0;
+    private volatile long mechanismTail = 0;
+    private volatile long droppedMechanismSamples = 0;
+
+    private final RawLogEntry poseEntry;
+    private final RawLogEntry moduleStatesEntry;
+    private final RawLogEntry speedsEntry;
+    private final byte[] poseBytes = new byte[24];
+    private final byte[] moduleStateBytes = new byte[16 * kModules];
+    private final byte[] speedsBytes = new byte[24];
+    private final ByteBuffer poseBuffer = ByteBuffer.wrap(poseBytes).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer moduleStateBuffer = ByteBuffer.wrap(moduleStateBytes).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer speedsBuffer = ByteBuffer.wrap(speedsBytes).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public BinaryTelemetryLog(DataLog log) {
+        this.log = log;
+
+        log.addSchema(Pose2d.struct);
+        log.addSchema(SwerveModuleState.struct);
+        log.addSchema(ChassisSpeeds.struct);
+        poseEntry = new RawLogEntry(log, "Drive/Pose", "", "struct:" + Pose2d.struct.getTypeName());
+        moduleStatesEntry = new RawLogEntry(log, "Drive/ModuleStates", "", "struct:" + SwerveModuleState.struct.getTypeName() + "[]");
+        speedsEntry = new RawLogEntry(log, "Drive/Speeds", "", "struct:" + ChassisSpeeds.struct.getTypeName());
+
+        writer = new Thread(this::runWriter, "BinaryTelemetryLog");
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Adds a mechanism value that is sampled once per main loop. Call during setup, before
+     * start().
+     * @param name Log entry name.
+     * @param source Value to sample.
+     */
+    public void addMechanism(String name, DoubleSupplier source) {
+        mechanismSources.add(source);
+        mechanismEntries.add(new DoubleLogEntry(log, name));
+        mechanismStride = 1 + mechanismSources.size();
+        mechanismRing = new double[kMechanismCapacity * mechanismStride];
+    }
+
+    /**
+     * Starts the background writer.
+     */
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Stops the background writer after it drains what's left.
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(writer);
+    }
+
+    /**
+     * Copies a drivetrain state into the ring. Called from the odometry thread.
+     * @param state Latest drivetrain state.
+     */
+    public void recordDrive(SwerveDriveState state) {
+        long head = driveHead;
+        if (head - driveTail >= kDriveCapacity) {
+            droppedDriveSamples++;
+            return;
+        }
+
+        int i = (int) (head % kDriveCapacity) * kDriveStride;
+        driveRing[i++] = Utils.currentTimeToFPGATime(state.Timestamp) * 1e6;
+        driveRing[i++] = state.Pose.getX();
+        driveRing[i++] = state.Pose.getY();
+        driveRing[i++] = state.Pose.getRotation().getRadians();
+        for (int module = 0; module < kModules; module++) {
+            driveRing[i++] = state.ModuleStates[module].speedMetersPerSecond;
+            driveRing[i++] = state.ModuleStates[module].angle.getRadians();
+        }
+        driveRing[i++] = state.Speeds.vxMetersPerSecond;
+        driveRing[i++] = state.Speeds.vyMetersPerSecond;
+        driveRing[i] = state.Speeds.omegaRadiansPerSecond;
+
+        driveHead = head + 1;
+    }
+
+    public long getDroppedDriveSamples() {
+        return droppedDriveSamples;
+    }
+
+    public long getDroppedMechanismSamples() {
+        return droppedMechanismSamples;
+    }
+
+    @Override
+    public void periodic() {
+        long head = mechanismHead;
+        if (head - mechanismTail >= kMechanismCapacity) {
+            droppedMechanismSamples++;
+            return;
+        }
+
+        int i = (int) (head % kMechanismCapacity) * mechanismStride;
+        mechanismRing[i++] = RobotController.getFPGATime();
+        for (int source = 0; source < mechanismSources.size(); source++) {
+            mechanismRing[i++] = mechanismSources.get(source).getAsDouble();
+        }
+        mechanismHead = head + 1;
+    }
+
+    /**
+     * Writes everything currently in the rings to the log. Normally only called by the writer
+     * thread, but public for benchmarking.
+     */
+    public void drain() {
+        long head = driveHead;
+        while (driveTail < head) {
+            writeDrive((int) (driveTail % kDriveCapacity) * kDriveStride);
+            driveTail++;
+        }
+
+        head = mechanismHead;
+        while (mechanismTail < head) {
+            int i = (int) (mechanismTail % kMechanismCapacity) * mechanismStride;
+            long timestamp = (long) mechanismRing[i];
+            for (int entry = 0; entry < mechanismEntries.size(); entry++) {
+                mechanismEntries.get(entry).append(mechanismRing[i + 1 + entry], timestamp);
+            }
+            mechanismTail++;
+        }
+    }
+
+    private void writeDrive(int i) {
+        long timestamp = (long) driveRing[i++];
+
+        // Pose2d struct: translation x, y, then rotation in radians
+        poseBuffer.putDouble(0, driveRing[i++]);
+        poseBuffer.putDouble(8, driveRing[i++]);
+        poseBuffer.putDouble(16, driveRing[i++]);
+        poseEntry.append(poseBytes, timestamp);
+
+        // SwerveModuleState struct: speed, then angle in radians
+        for (int module = 0; module < kModules; module++) {
+            moduleStateBuffer.putDouble(module * 16, driveRing[i++]);
+            moduleStateBuffer.putDouble(module * 16 + 8, driveRing[i++]);
+        }
+        moduleStatesEntry.append(moduleStateBytes, timestamp);
+
+        speedsBuffer.putDouble(0, driveRing[i++]);
+        speedsBuffer.putDouble(8, driveRing[i++]);
+        speedsBuffer.putDouble(16, driveRing[i]);
+        speedsEntry.append(speedsBytes, timestamp);
+    }
+
+    private void runWriter() {
+        while (running) {
+            drain();
+            LockSupport.parkNanos(kWriterPeriodNanos);
+        }
+        drain();
+    }
+}
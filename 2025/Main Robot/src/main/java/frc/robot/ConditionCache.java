@@ -0,0 +1,186 @@
+package frc.robot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj2.command.button.Trigger;
+import frc.robot.subsystems.TelemetryPublisher;
+
+/**
+ * Named conditions and values that are computed at most once per scheduler tick. Every trigger,
+ * composed trigger and command that asks for the same name in the same tick gets the cached
+ * result. Each entry counts how often it was requested and how often it was actually evaluated,
+ * and those counts for the last tick are published under "Conditions/".
+ *
+ * <p>beginTick() has to be bound to the button loop right after the operator board is sampled,
+ * so the cache is cleared after every subsystem has taken its input snapshot.
+ */
+public class ConditionCache extends SubsystemBase {
+
+    private static final ArrayList<Entry> entries = new ArrayList<>();
+    private static long tick = 0;
+
+    private final TelemetryPublisher telemetry;
+    private int publishedEntries = 0;
+    private TelemetryPublisher.DoubleChannel[] channels = new TelemetryPublisher.DoubleChannel[0];
+    private final TelemetryPublisher.DoubleChannel savedChannel;
+
+    public ConditionCache(TelemetryPublisher telemetry) {
+        this.telemetry = telemetry;
+        savedChannel = telemetry.addDouble("Conditions/Evaluations Saved", TelemetryPublisher.Rate.kDiagnostic, 0);
+    }
+
+    /**
+     * Starts a new tick, so every entry is evaluated again the next time it's requested.
+     */
+    public static void beginTick() {
+        tick++;
+    }
+
+    /**
+     * Gets a cached condition, creating it the first time the name is used.
+     * @param name Name shown on the dashboard.
+     * @param condition Condition to evaluate at most once per tick.
+     * @return Cached condition.
+     */
+    public static BooleanSupplier condition(String name, BooleanSupplier condition) {
+        return entry(name, BooleanEntry.class, () -> new BooleanEntry(name, condition));
+    }
+
+    /**
+     * Gets a trigger on a cached condition. Every call with the same name returns the same
+     * Trigger, and all of its bindings share one evaluation per tick.
+     * @param name Name shown on the dashboard.
+     * @param condition Condition to evaluate at most once per tick.
+     * @return Shared trigger.
+     */
+    public static Trigger trigger(String name, BooleanSupplier condition) {
+        BooleanEntry entry = entry(name, BooleanEntry.class, () -> new BooleanEntry(name, condition));
+        if (entry.trigger == null) {
+            entry.trigger = new Trigger(entry);
+        }
+        return entry.trigger;
+    }
+
+    /**
+     * Gets a cached value, creating it the first time the name is used.
+     * @param name Name shown on the dashboard.
+     * @param value Value to compute at most once per tick.
+     * @return Cached value.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Supplier<T> value(String name, Supplier<T> value) {
+        return entry(name, ValueEntry.class, () -> new ValueEntry<>(name, value));
+    }
+
+    private static <E extends Entry> E entry(String name, Class<E> type, Supplier<E> create) {
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (entry.name.equals(name)) {
+                if (!type.isInstance(entry)) {
+                    throw new IllegalArgumentException("Condition " + name + " is already registered as a different type");
+                }
+                return type.cast(entry);
+            }
+        }
+        E entry = create.get();
+        entries.add(entry);
+        return entry;
+    }
+
+    @Override
+    public void periodic() {
+        if (publishedEntries != entries.size()) {
+            registerChannels();
+        }
+
+        // Counts are from the tick that just finished
+        int saved = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            channels[i * 2].set(entry.requested);
+            channels[i * 2 + 1].set(entry.evaluated);
+            saved += entry.requested - entry.evaluated;
+            entry.requested = 0;
+            entry.evaluated = 0;
+        }
+        savedChannel.set(saved);
+    }
+
+    private void registerChannels() {
+        // Only happens when new entries show up, normally just once after startup
+        TelemetryPublisher.DoubleChannel[] grown = Arrays.copyOf(channels, entries.size() * 2);
+        for (int i = publishedEntries; i < entries.size(); i++) {
+            String name = entries.get(i).name;
+            grown[i * 2] = telemetry.addDouble("Conditions/" + name + "/Requested", TelemetryPublisher.Rate.kDiagnostic, 0);
+            grown[i * 2 + 1] = telemetry.addDouble("Conditions/" + name + "/Evaluated", TelemetryPublisher.Rate.kDiagnostic, 0);
+        }
+        channels = grown;
+        publishedEntries = entries.size();
+    }
+
+    private abstract static class Entry {
+        private final String name;
+        long evaluatedTick = -1;
+        int requested = 0;
+        int evaluated = 0;
+
+        Entry(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Counts a request.
+         * @return True if the cached result is stale and has to be evaluated.
+         */
+        boolean request() {
+            requested++;
+            if (evaluatedTick == tick) {
+                return false;
+            }
+            evaluatedTick = tick;
+            evaluated++;
+            return true;
+        }
+    }
+
+    private static class BooleanEntry extends Entry implements BooleanSupplier {
+        private final BooleanSupplier condition;
+        private boolean cached = false;
+        private Trigger trigger = null;
+
+        BooleanEntry(String name, BooleanSupplier condition) {
+            super(name);
+            this.condition = condition;
+        }
+
+        @Override
+        public boolean getAsBoolean() {
+            if (request()) {
+                cached = condition.getAsBoolean();
+            }
+            return cached;
+        }
+    }
+
+    private static class ValueEntry<T> extends Entry implements Supplier<T> {
+        private final Supplier<T> value;
+        private T cached = null;
+
+        ValueEntry(String name, Supplier<T> value) {
+            super(name);
+            this.value = value;
+        }
+
+        @Override
+        public T get() {
+            if (request()) {
+                cached = value.get();
+            }
+            return cached;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package frc.robot;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.replay.InputRecorder;
+import frc.robot.subsystems.TelemetryPublisher;
+
+/**
+ * Timestamps each step of the scoring cycle, from the operator asking for a coral to the coral
+ * leaving the robot, to show which step holds the cycle up. Bindings and commands call mark()
+ * as the events happen, and the eject completing closes the cycle.
+ *
+ * <p>Each stage's latency is the time from the latest earlier event in the cycle to its own, so
+ * a stage that finished while waiting on another counts as zero. Stage latencies and the total
+ * cycle time go into preallocated ring buffers and fixed bin histograms, nothing is allocated
+ * until the report is written. The report goes to the log directory when teleop is disabled,
+ * and the last cycle is published under "Cycles/".
+ */
+public class CycleTimeline extends SubsystemBase {
+
+    public enum Event {
+        kPress("Do The Thing"),
+        kLoadStart("Load Start"),
+        kCoralAcquired("Coral Acquired"),
+        kAtPose("At Pose"),
+        kElevatorAtSetpoint("Elevator At Setpoint"),
+        kEjectComplete("Eject Complete");
+
+        private final String name;
+
+        Event(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    // Stage i ends at event i + 1, the total cycle is kept after the stages
+    private static final String[] kStageNames = {"Dispatch", "Intake", "Drive", "Elevator", "Eject", "Cycle"};
+    private static final int kEvents = Event.values().length;
+    private static final int kSeries = kStageNames.length;
+    private static final int kTotal = kSeries - 1;
+    private static final int kCapacity = 64;
+    private static final double kBinWidth = 0.25;
+    private static final int kBins = 40; // the last bin also counts everything past 10 s
+
+    private static final double[] eventTimes = new double[kEvents];
+    private static final double[][] ring = new double[kSeries][kCapacity];
+    private static final int[][] histograms = new int[kSeries][kBins];
+    private static final double[] lastCycle = new double[kSeries];
+    private static int cycles = 0;
+
+    private final TelemetryPublisher.DoubleChannel countChannel;
+    private final TelemetryPublisher.DoubleChannel[] lastChannels = new TelemetryPublisher.DoubleChannel[kSeries];
+    private int publishedCycles = 0;
+    private boolean wasTeleop = false;
+
+    static {
+        reset();
+    }
+
+    public CycleTimeline(TelemetryPublisher telemetry) {
+        countChannel = telemetry.addDouble("Cycles/Count", TelemetryPublisher.Rate.kMatchCritical, 0);
+        for (int i = 0; i < kSeries; i++) {
+            lastChannels[i] = telemetry.addDouble("Cycles/Last " + kStageNames[i] + " (s)", TelemetryPublisher.Rate.kDiagnostic, 0.01);
+        }
+    }
+
+    /**
+     * Records that an event happened now. The first press and load start of a cycle are kept,
+     * for the rest the latest one counts. Getting coral forgets any earlier arrivals, since
+     * those were at the station.
+     * @param event Event that happened.
+     */
+    public static void mark(Event event) {
+        double now = Timer.getFPGATimestamp();
+        int index = event.ordinal();
+        switch (event) {
+            case kPress:
+            case kLoadStart:
+                if (Double.isNaN(eventTimes[index])) {
+                    eventTimes[index] = now;
+                }
+                break;
+            case kCoralAcquired:
+                eventTimes[index] = now;
+                eventTimes[Event.kAtPose.ordinal()] = Double.NaN;
+                eventTimes[Event.kElevatorAtSetpoint.ordinal()] = Double.NaN;
+                break;
+            case kEjectComplete:
+                eventTimes[index] = now;
+                completeCycle();
+                break;
+            default:
+                eventTimes[index] = now;
+                break;
+        }
+    }
+
+    /**
+     * Creates a command that marks an event, for binding to a trigger.
+     * @param event Event to mark.
+     * @return Command that marks the event once.
+     */
+    public static Command markCommand(Event event) {
+        return Commands.runOnce(() -> mark(event)).withName("Mark " + event);
+    }
+
+    public static int getCycleCount() {
+        return cycles;
+    }
+
+    private static void completeCycle() {
+        int slot = cycles % kCapacity;
+        double start = Double.POSITIVE_INFINITY;
+        double latest = Double.NaN;
+        for (int i = 0; i < kEvents; i++) {
+            double time = eventTimes[i];
+            if (i > 0) {
+                double latency = Double.isNaN(time) || Double.isNaN(latest) ? Double.NaN : Math.max(0, time - latest);
+                record(i - 1, slot, latency);
+            }
+            if (!Double.isNaN(time)) {
+                start = Math.min(start, time);
+                latest = Double.isNaN(latest) ? time : Math.max(latest, time);
+            }
+        }
+        record(kTotal, slot, eventTimes[Event.kEjectComplete.ordinal()] - start);
+
+        cycles++;
+        Arrays.fill(eventTimes, Double.NaN);
+    }
+
+    private static void record(int series, int slot, double latency) {
+        ring[series][slot] = latency;
+        lastCycle[series] = latency;
+        if (!Double.isNaN(latency)) {
+            histograms[series][Math.min(kBins - 1, (int) (latency / kBinWidth))]++;
+        }
+    }
+
+    private static void reset() {
+        Arrays.fill(eventTimes, Double.NaN);
+        for (int i = 0; i < kSeries; i++) {
+            Arrays.fill(ring[i], Double.NaN);
+            Arrays.fill(histograms[i], 0);
+        }
+        Arrays.fill(lastCycle, Double.NaN);
+        cycles = 0;
+    }
+
+    @Override
+    public void periodic() {
+        if (cycles != publishedCycles) {
+            publishedCycles = cycles;
+            countChannel.set(cycles);
+            for (int i = 0; i < kSeries; i++) {
+                if (!Double.isNaN(lastCycle[i])) {
+                    lastChannels[i].set(lastCycle[i]);
+                }
+            }
+        }
+
+        // End of the match, or of a practice run. Auto's disable before teleop doesn't count.
+        boolean teleop = DriverStation.isTeleopEnabled();
+        if (wasTeleop && !teleop && cycles > 0) {
+            writeReport();
+            reset();
+            publishedCycles = 0;
+        }
+        wasTeleop = teleop;
+    }
+
+    private void writeReport() {
+        String report = report();
+        File file = new File(InputRecorder.getLogDirectory(), "cycles_" + System.currentTimeMillis() + ".txt");
+        try {
+            Files.writeString(file.toPath(), report);
+            DataLogManager.log("CycleTimeline: wrote " + file);
+        } catch (IOException e) {
+            DataLogManager.log("CycleTimeline: couldn't write " + file + ": " + e.getMessage());
+        }
+        DataLogManager.log(report);
+    }
+
+    /**
+     * Builds the report for the cycles so far: per stage statistics over the cycles still in
+     * the ring buffers, the slowest stage, the histograms, and every cycle's stages.
+     * @return Report text.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder();
+        int stored = Math.min(cycles, kCapacity);
+        report.append(String.format("%d cycles, statistics over the last %d%n%n", cycles, stored));
+        report.append(String.format("%-10s %6s %8s %8s %8s %8s%n", "Stage", "Count", "Mean", "Median", "P90", "Max"));
+
+        int bottleneck = -1;
+        double bottleneckMean = 0;
+        double[] values = new double[kCapacity];
+        for (int series = 0; series < kSeries; series++) {
+            int count = 0;
+            double sum = 0;
+            for (int i = 0; i < stored; i++) {
+                if (!Double.isNaN(ring[series][i])) {
+                    values[count++] = ring[series][i];
+                    sum += ring[series][i];
+                }
+            }
+            if (count == 0) {
+                report.append(String.format("%-10s %6d%n", kStageNames[series], 0));
+                continue;
+            }
+            Arrays.sort(values, 0, count);
+            double mean = sum / count;
+            report.append(String.format("%-10s %6d %7.2fs %7.2fs %7.2fs %7.2fs%n", kStageNames[series], count,
+                mean, values[count / 2], values[Math.min(count - 1, (int) (count * 0.9))], values[count - 1]));
+            if (series != kTotal && mean > bottleneckMean) {
+                bottleneck = series;
+                bottleneckMean = mean;
+            }
+        }
+        if (bottleneck >= 0) {
+            report.append(String.format("%nSlowest stage: %s, %.2f s on average%n", kStageNames[bottleneck], bottleneckMean));
+        }
+
+        report.append(String.format("%nHistograms, %.2f s bins, counts from 0 s:%n", kBinWidth));
+        for (int series = 0; series < kSeries; series++) {
+            int last = kBins - 1;
+            while (last > 0 && histograms[series][last] == 0) {
+                last--;
+            }
+            report.append(String.format("%-10s", kStageNames[series]));
+            for (int bin = 0; bin <= last; bin++) {
+                report.append(' ').append(histograms[series][bin]);
+            }
+            report.append(System.lineSeparator());
+        }
+
+        report.append(String.format("%nCycle"));
+        for (String name : kStageNames) {
+            report.append(String.format(" %9s", name));
+        }
+        report.append(System.lineSeparator());
+        for (int n = cycles - stored; n < cycles; n++) {
+            report.append(String.format("%5d", n + 1));
+            for (int series = 0; series < kSeries; series++) {
+                double value = ring[series][n % kCapacity];
+                report.append(Double.isNaN(value) ? String.format(" %9s", "-") : String.format(" %8.2fs", value));
+            }
+            report.append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+}
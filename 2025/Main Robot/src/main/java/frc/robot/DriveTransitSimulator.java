@@ -0,0 +1,126 @@
+package frc.robot;
+
+import static edu.wpi.first.units.Units.MetersPerSecond;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.wpilibj.TimedRobot;
+import frc.robot.Constants.Field.Branch;
+import frc.robot.generated.TunerConstants;
+
+/**
+ * Headless comparison of the old height-scaled top speed against the TipLimiter on common
+ * teleop transits. A point-mass robot is driven along the straight line between two poses by a
+ * driver model that holds full stick and eases off near the end, while the elevator moves on a
+ * trapezoid profile. Prints the transit time and the worst acceleration as a fraction of what
+ * would tip the robot, where anything over 100% means it tipped.
+ *
+ * <p>The drivetrain's updateMaxSpeed isn't part of this project, so the old behavior is modeled
+ * as top speed falling linearly from full at stow to kMinSpeedScale at L4.
+ */
+public final class DriveTransitSimulator {
+    private static final double kDt = TimedRobot.kDefaultPeriod;
+    private static final double kTimeout = 10;
+    private static final double kMaxSpeed = TunerConstants.kSpeedAt12Volts.in(MetersPerSecond);
+    private static final double kMinSpeedScale = 0.3;
+    // How hard the driver's stick easing asks the robot to brake
+    private static final double kDriverBrake = 6.0;
+    private static final double kArrivalTolerance = 0.03;
+    private static final TrapezoidProfile.Constraints kElevatorConstraints = new TrapezoidProfile.Constraints(1.8, 6.0);
+
+    private DriveTransitSimulator() {}
+
+    public static void main(String[] args) {
+        SimHarness.start();
+        ReefWaypoints.load();
+
+        compare("Reef to left station, elevator lowering from L4",
+            ReefWaypoints.getPose(20, Branch.kLeft), AutoPlan.kBlueLeftStation,
+            Constants.ElevatorConstants.kL4, Constants.ElevatorConstants.kLoad);
+        compare("Branch to branch, elevator held at L4",
+            ReefWaypoints.getPose(21, Branch.kLeft), ReefWaypoints.getPose(22, Branch.kRight),
+            Constants.ElevatorConstants.kL4, Constants.ElevatorConstants.kL4);
+        compare("Left station to reef, elevator at load height",
+            AutoPlan.kBlueLeftStation, ReefWaypoints.getPose(19, Branch.kLeft),
+            Constants.ElevatorConstants.kLoad, Constants.ElevatorConstants.kLoad);
+    }
+
+    private static void compare(String name, Pose2d from, Pose2d to, double startHeight, double endHeight) {
+        Result scaled = simulate(from, to, startHeight, endHeight, false);
+        Result limited = simulate(from, to, startHeight, endHeight, true);
+        System.out.printf("%s (%.2f m):%n", name, from.getTranslation().getDistance(to.getTranslation()));
+        System.out.printf("  height-scaled speed: %.2f s, peak %.0f%% of tipping%s%n",
+            scaled.time, scaled.peakTipRatio * 100, scaled.peakTipRatio > 1 ? " (TIPPED)" : "");
+        System.out.printf("  tip limiter:         %.2f s, peak %.0f%% of tipping%s%n",
+            limited.time, limited.peakTipRatio * 100, limited.peakTipRatio > 1 ? " (TIPPED)" : "");
+    }
+
+    /**
+     * Drives one transit.
+     * @param from Start pose.
+     * @param to End pose.
+     * @param startHeight Elevator height at the start.
+     * @param endHeight Elevator goal, it starts moving right away.
+     * @param useTipLimiter True for the TipLimiter at full top speed, false for the old height
+     *     scaled top speed with only traction limiting acceleration.
+     * @return Transit time and peak tip ratio.
+     */
+    private static Result simulate(Pose2d from, Pose2d to, double startHeight, double endHeight, boolean useTipLimiter) {
+        Translation2d line = to.getTranslation().minus(from.getTranslation());
+        double distance = line.getNorm();
+        double ux = line.getX() / distance;
+        double uy = line.getY() / distance;
+        // Backing away from the reef and into the station, the usual way it's driven
+        double heading = Math.atan2(uy, ux) + Math.PI;
+
+        TrapezoidProfile profile = new TrapezoidProfile(kElevatorConstraints);
+        TrapezoidProfile.State elevator = new TrapezoidProfile.State(startHeight, 0);
+        TrapezoidProfile.State elevatorGoal = new TrapezoidProfile.State(endHeight, 0);
+        TipLimiter limiter = new TipLimiter(null, () -> 0, () -> false);
+
+        double position = 0;
+        double speed = 0;
+        double peakTipRatio = 0;
+        double time = 0;
+        while (time < kTimeout) {
+            elevator = profile.calculate(kDt, elevator, elevatorGoal);
+            double height = elevator.position;
+
+            double topSpeed = useTipLimiter ? kMaxSpeed : kMaxSpeed * speedScale(height);
+            double remaining = distance - position;
+            double target = Math.signum(remaining) * Math.min(topSpeed, Math.sqrt(2 * kDriverBrake * Math.abs(remaining)));
+
+            double next;
+            if (useTipLimiter) {
+                limiter.step(target * ux, target * uy, heading, height, kDt);
+                next = limiter.getVx() * ux + limiter.getVy() * uy;
+            } else {
+                double step = TipLimiter.getTractionLimit() * kDt;
+                next = speed + Math.max(-step, Math.min(step, target - speed));
+            }
+
+            double acceleration = (next - speed) / kDt;
+            double direction = Math.atan2(uy * Math.signum(acceleration), ux * Math.signum(acceleration)) - heading;
+            if (acceleration != 0) {
+                peakTipRatio = Math.max(peakTipRatio, Math.abs(acceleration) / TipLimiter.getTipAcceleration(direction, height));
+            }
+
+            speed = next;
+            position += speed * kDt;
+            time += kDt;
+            if (Math.abs(distance - position) < kArrivalTolerance && Math.abs(speed) < 0.05) {
+                break;
+            }
+        }
+        return new Result(time, peakTipRatio);
+    }
+
+    private static double speedScale(double height) {
+        double range = Constants.ElevatorConstants.kL4 - Constants.ElevatorConstants.kStow;
+        double fraction = Math.max(0, Math.min(1, (height - Constants.ElevatorConstants.kStow) / range));
+        return 1 - (1 - kMinSpeedScale) * fraction;
+    }
+
+    private record Result(double time, double peakTipRatio) {}
+}
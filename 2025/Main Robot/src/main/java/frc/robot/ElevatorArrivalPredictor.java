@@ -0,0 +1,88 @@
+package frc.robot;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.math.filter.LinearFilter;
+import frc.robot.subsystems.Elevator;
+
+/**
+ * Predicts how long the elevator needs to reach its setpoint from its measured height. Velocity
+ * is found by differencing the height each loop, and the remaining time assumes the elevator's
+ * motion profile decelerates at a constant rate into the setpoint.
+ */
+public class ElevatorArrivalPredictor {
+    private static final double kLoopPeriod = 0.02;
+    // Deceleration the elevator profile uses near the setpoint, in elevator height units per s^2
+    private static final double kDeceleration = 4.0;
+    // Loops sampled before atSetpoint() is trusted, it reflects the elevator's previous goal
+    // until goToSetpoint has run
+    private static final int kSettledSamples = 2;
+
+    private final Elevator elevator;
+    private final DoubleSupplier setpoint;
+    private final LinearFilter velocityFilter = LinearFilter.movingAverage(3);
+
+    private double lastHeight = Double.NaN;
+    private double velocity = 0;
+    private int samples = 0;
+
+    public ElevatorArrivalPredictor(Elevator elevator, DoubleSupplier setpoint) {
+        this.elevator = elevator;
+        this.setpoint = setpoint;
+    }
+
+    /**
+     * Forgets the previous motion. Call when a new move starts.
+     */
+    public void reset() {
+        lastHeight = Double.NaN;
+        velocity = 0;
+        samples = 0;
+        velocityFilter.reset();
+    }
+
+    /**
+     * Samples the elevator height. Call once per loop.
+     */
+    public void update() {
+        double height = elevator.getHeight();
+        if (!Double.isNaN(lastHeight)) {
+            velocity = velocityFilter.calculate((height - lastHeight) / kLoopPeriod);
+        }
+        lastHeight = height;
+        samples++;
+    }
+
+    /**
+     * Gets the predicted time until the elevator reaches its setpoint.
+     * @return Seconds until arrival, 0 if already there, or infinity if it isn't moving towards it.
+     */
+    public double getTimeToArrival() {
+        if (samples >= kSettledSamples && elevator.atSetpoint()) {
+            return 0;
+        }
+        return timeToArrival(setpoint.getAsDouble() - elevator.getHeight(), velocity);
+    }
+
+    /**
+     * Predicts the time to cover a distance from the current velocity, braking at the profile's
+     * deceleration. Shared with MechanismSimulator so it models the same prediction.
+     * @param remaining Setpoint minus height.
+     * @param velocity Filtered elevator velocity.
+     * @return Seconds until arrival, or infinity if it isn't moving towards the setpoint.
+     */
+    static double timeToArrival(double remaining, double velocity) {
+        double speed = velocity * Math.signum(remaining);
+        double distance = Math.abs(remaining);
+        if (speed <= 1e-3) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        // Already inside the braking distance: slowing linearly to zero covers the distance in 2d/v
+        double brakingDistance = speed * speed / (2 * kDeceleration);
+        if (distance <= brakingDistance) {
+            return 2 * distance / speed;
+        }
+        return (distance - brakingDistance) / speed + speed / kDeceleration;
+    }
+}
@@ -0,0 +1,204 @@
+package frc.robot;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.subsystems.TelemetryPublisher;
+
+/**
+ * Throttles non-critical periodic work when the main loop runs over budget. Work is registered
+ * as a task with a priority and asks shouldRun() before doing anything. Critical tasks always
+ * run. The rest are held to a minimum period depending on the shed level, which goes up when
+ * recent loops overrun and comes back down one step at a time once there's headroom again.
+ *
+ * <p>Skipped runs are credited with the task's average cost, which is published as the time
+ * recovered per loop. The drive and mechanism sections in the LoopProfiler show whether control
+ * kept its timing while shedding.
+ *
+ * <p>This subsystem has to be constructed right after the LoopProfiler and before the
+ * InputRecorder, so every loop starts from the level worked out from the loop that just finished.
+ */
+public class LoadShedder extends SubsystemBase {
+
+    public enum Priority {
+        /** Control work, never skipped. */
+        kCritical,
+        /** Match telemetry, throttled at the highest shed level. */
+        kNormal,
+        /** Diagnostics and cosmetics, throttled first and skipped at the highest level. */
+        kDeferrable
+    }
+
+    /** Nothing shed. */
+    public static final int kLevelNone = 0;
+    /** Deferrable tasks throttled. */
+    public static final int kLevelThrottle = 1;
+    /** Deferrable tasks skipped, normal tasks throttled. */
+    public static final int kLevelShed = 2;
+
+    // Over when the loop ran long or the measured work alone was close to the budget
+    private static final double kOverrunFraction = 1.05;
+    private static final double kBusyFraction = 0.85;
+    // Headroom when the measured work is well under budget
+    private static final double kHeadroomFraction = 0.6;
+    private static final int kOverrunLoopsToEscalate = 2;
+    private static final int kHeadroomLoopsToRecover = 50;
+
+    // A little under whole loops, so timing jitter doesn't skip an extra loop
+    private static final long kThrottlePeriodNanos = 95_000_000; // every fifth loop
+    private static final long kNormalThrottlePeriodNanos = 35_000_000; // every other loop
+    private static final long kSkipped = Long.MAX_VALUE;
+    // Weight of the newest run in a task's average cost
+    private static final double kCostSmoothing = 0.1;
+
+    private static final ArrayList<Task> tasks = new ArrayList<>();
+    private static volatile int level = kLevelNone;
+    private static final AtomicLong skippedRuns = new AtomicLong();
+    private static final AtomicLong recoveredNanos = new AtomicLong();
+
+    private int overrunLoops = 0;
+    private int headroomLoops = 0;
+    private long shedEvents = 0;
+
+    private final TelemetryPublisher.DoubleChannel levelChannel;
+    private final TelemetryPublisher.DoubleChannel shedEventsChannel;
+    private final TelemetryPublisher.DoubleChannel skippedChannel;
+    private final TelemetryPublisher.DoubleChannel recoveredChannel;
+    private final TelemetryPublisher.DoubleChannel workChannel;
+
+    public LoadShedder(TelemetryPublisher telemetry) {
+        // Match critical, so they keep coming through while diagnostics are shed
+        levelChannel = telemetry.addDouble("Load Shedding/Level", TelemetryPublisher.Rate.kMatchCritical, 0);
+        shedEventsChannel = telemetry.addDouble("Load Shedding/Shed Events", TelemetryPublisher.Rate.kMatchCritical, 0);
+        skippedChannel = telemetry.addDouble("Load Shedding/Skipped Per Loop", TelemetryPublisher.Rate.kMatchCritical, 0);
+        recoveredChannel = telemetry.addDouble("Load Shedding/Recovered Per Loop (ms)", TelemetryPublisher.Rate.kMatchCritical, 0.01);
+        workChannel = telemetry.addDouble("Load Shedding/Measured Work (ms)", TelemetryPublisher.Rate.kMatchCritical, 0.1);
+    }
+
+    /**
+     * Gets a named task, creating it the first time the name is used.
+     * @param name Task name, callers using the same name share the task.
+     * @param priority How important the task is.
+     * @return Task to check before running the work.
+     */
+    public static Task task(String name, Priority priority) {
+        synchronized (tasks) {
+            for (int i = 0; i < tasks.size(); i++) {
+                if (tasks.get(i).name.equals(name)) {
+                    return tasks.get(i);
+                }
+            }
+            Task task = new Task(name, priority);
+            tasks.add(task);
+            return task;
+        }
+    }
+
+    /**
+     * Wraps a trigger condition so it's only evaluated when its task may run. In between, the
+     * last value is returned.
+     * @param name Task name.
+     * @param priority How important the condition is.
+     * @param condition Condition to gate.
+     * @return Gated condition.
+     */
+    public static BooleanSupplier gate(String name, Priority priority, BooleanSupplier condition) {
+        Task task = task(name, priority);
+        boolean[] last = new boolean[1];
+        return () -> {
+            if (task.shouldRun()) {
+                long start = System.nanoTime();
+                last[0] = condition.getAsBoolean();
+                task.record(start);
+            }
+            return last[0];
+        };
+    }
+
+    public static int getLevel() {
+        return level;
+    }
+
+    @Override
+    public void periodic() {
+        long budget = LoopProfiler.getLoopBudgetNanos();
+        long loop = LoopProfiler.getLastLoopNanos();
+        long work = LoopProfiler.getLastWorkNanos();
+
+        boolean over = loop > budget * kOverrunFraction || work > budget * kBusyFraction;
+        boolean headroom = !over && work < budget * kHeadroomFraction;
+        overrunLoops = over ? overrunLoops + 1 : 0;
+        headroomLoops = headroom ? headroomLoops + 1 : 0;
+
+        if (overrunLoops >= kOverrunLoopsToEscalate && level < kLevelShed) {
+            level++;
+            overrunLoops = 0;
+            shedEvents++;
+            DataLogManager.log("LoadShedder: shed level " + level + " after a " + loop / 1000
+                + " us loop with " + work / 1000 + " us of measured work");
+        } else if (headroomLoops >= kHeadroomLoopsToRecover && level > kLevelNone) {
+            level--;
+            headroomLoops = 0;
+            DataLogManager.log("LoadShedder: back to shed level " + level);
+        }
+
+        levelChannel.set(level);
+        shedEventsChannel.set(shedEvents);
+        skippedChannel.set(skippedRuns.getAndSet(0));
+        recoveredChannel.set(recoveredNanos.getAndSet(0) / 1e6);
+        workChannel.set(work / 1e6);
+    }
+
+    /**
+     * A piece of periodic work. Each task should only be run from one thread.
+     */
+    public static class Task {
+        private final String name;
+        private final Priority priority;
+        private long lastRunNanos = Long.MIN_VALUE / 2;
+        private double averageCostNanos = 0;
+
+        private Task(String name, Priority priority) {
+            this.name = name;
+            this.priority = priority;
+        }
+
+        /**
+         * Checks whether the task may run now. A false counts as a skip.
+         * @return True to run the work, then call record().
+         */
+        public boolean shouldRun() {
+            long now = System.nanoTime();
+            long period = minimumPeriod(priority, level);
+            if (period != kSkipped && now - lastRunNanos >= period) {
+                lastRunNanos = now;
+                return true;
+            }
+            skippedRuns.incrementAndGet();
+            recoveredNanos.addAndGet((long) averageCostNanos);
+            return false;
+        }
+
+        /**
+         * Records how long a run took, to estimate what skipping it saves.
+         * @param startNanos Value of System.nanoTime() when the work started.
+         */
+        public void record(long startNanos) {
+            averageCostNanos += (System.nanoTime() - startNanos - averageCostNanos) * kCostSmoothing;
+        }
+
+        private static long minimumPeriod(Priority priority, int level) {
+            switch (priority) {
+                case kDeferrable:
+                    return level >= kLevelShed ? kSkipped : level == kLevelThrottle ? kThrottlePeriodNanos : 0;
+                case kNormal:
+                    return level >= kLevelShed ? kNormalThrottlePeriodNanos : 0;
+                default:
+                    return 0;
+            }
+        }
+    }
+}
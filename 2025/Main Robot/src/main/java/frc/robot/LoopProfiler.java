@@ -0,0 +1,251 @@
+package frc.robot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj2.command.WrapperCommand;
+import frc.robot.subsystems.TelemetryPublisher;
+
+/**
+ * Times subsystem periodics, command executes and trigger conditions. Each section adds up its
+ * time for the current loop, and the total is stored into a fixed ring of the last few seconds
+ * of loops so percentiles can be worked out without allocating. Loops more than 5% over budget
+ * are counted, and at most one a second is logged with its section times.
+ *
+ * <p>This subsystem has to be constructed right after the TelemetryPublisher and before every
+ * other subsystem, so that its periodic() runs second, just after the publisher's, and marks the
+ * start of each loop. The publisher's flush at the top of a loop is counted in the loop before.
+ */
+public class LoopProfiler extends SubsystemBase {
+
+    private static final int kWindow = 250; // 5 seconds of 20 ms loops
+    private static final long kLoopBudgetNanos = 20_000_000;
+    // Same margin as the LoadShedder, so normal scheduling jitter isn't counted as an overrun
+    private static final double kOverrunFraction = 1.05;
+    // At most one overrun report per second, the rest are only counted
+    private static final int kOverrunLogLoops = 50;
+    private static final int kPublishEveryLoops = 50;
+
+    private static final ArrayList<Section> sections = new ArrayList<>();
+    private static long lastLoopNanos = 0;
+    private static long lastWorkNanos = 0;
+
+    private final TelemetryPublisher telemetry;
+    private final long[] scratch = new long[kWindow];
+    private final StringBuilder report = new StringBuilder(2048);
+    private final Section loopSection = new Section("Loop");
+    private final LoadShedder.Task publishTask = LoadShedder.task("Profiler Publish", LoadShedder.Priority.kDeferrable);
+
+    private long lastLoopStart = 0;
+    private int loopsSincePublish = 0;
+    private int publishedSections = 0;
+    private long overruns = 0;
+    private int overrunsSinceLog = 0;
+    private int loopsSinceOverrunLog = kOverrunLogLoops;
+    private final TelemetryPublisher.DoubleChannel overrunsChannel;
+    private TelemetryPublisher.DoubleChannel[] channels = new TelemetryPublisher.DoubleChannel[0];
+
+    public LoopProfiler(TelemetryPublisher telemetry) {
+        this.telemetry = telemetry;
+        overrunsChannel = telemetry.addDouble("Profiler/Overruns", TelemetryPublisher.Rate.kDiagnostic, 0);
+    }
+
+    /**
+     * Gets a named timing section, creating it the first time the name is used. Commands that
+     * are rebuilt with the same name share one section.
+     * @param name Name shown on the dashboard and in overrun reports.
+     * @return Section to record time on.
+     */
+    public static Section section(String name) {
+        synchronized (sections) {
+            for (int i = 0; i < sections.size(); i++) {
+                if (sections.get(i).name.equals(name)) {
+                    return sections.get(i);
+                }
+            }
+            Section section = new Section(name);
+            sections.add(section);
+            return section;
+        }
+    }
+
+    /**
+     * Wraps a command so every execute() is timed under the command's name.
+     * @param command Command to time.
+     * @return Wrapped command.
+     */
+    public static Command profile(Command command) {
+        Section section = section(command.getName() + ".execute");
+        return new WrapperCommand(command) {
+            @Override
+            public void execute() {
+                long start = System.nanoTime();
+                super.execute();
+                section.record(start);
+            }
+        };
+    }
+
+    /**
+     * Wraps a trigger condition so every evaluation is timed.
+     * @param name Name of the condition.
+     * @param condition Condition to time.
+     * @return Timed condition.
+     */
+    public static BooleanSupplier profile(String name, BooleanSupplier condition) {
+        Section section = section(name + ".condition");
+        return () -> {
+            long start = System.nanoTime();
+            boolean value = condition.getAsBoolean();
+            section.record(start);
+            return value;
+        };
+    }
+
+    @Override
+    public void periodic() {
+        long now = System.nanoTime();
+        long loopTime = lastLoopStart == 0 ? 0 : now - lastLoopStart;
+        lastLoopStart = now;
+
+        loopSection.accumulator.set(loopTime);
+        loopSection.commit();
+
+        synchronized (sections) {
+            long work = 0;
+            for (int i = 0; i < sections.size(); i++) {
+                Section section = sections.get(i);
+                section.commit();
+                work += section.last;
+            }
+            lastLoopNanos = loopTime;
+            lastWorkNanos = work;
+
+            loopsSinceOverrunLog++;
+            if (loopTime > kLoopBudgetNanos * kOverrunFraction) {
+                overruns++;
+                overrunsSinceLog++;
+                overrunsChannel.set(overruns);
+                if (loopsSinceOverrunLog >= kOverrunLogLoops) {
+                    logOverrun(loopTime);
+                    loopsSinceOverrunLog = 0;
+                    overrunsSinceLog = 0;
+                }
+            }
+
+            // Held back while loads are being shed, and sent as soon as it's allowed again
+            if (++loopsSincePublish >= kPublishEveryLoops && publishTask.shouldRun()) {
+                long start = System.nanoTime();
+                loopsSincePublish = 0;
+                publish();
+                publishTask.record(start);
+            }
+        }
+    }
+
+    /**
+     * @return Time from the start of the previous loop to the start of the last one.
+     */
+    public static long getLastLoopNanos() {
+        return lastLoopNanos;
+    }
+
+    /**
+     * @return Total of every section in the last loop, the part of the loop that was measured.
+     */
+    public static long getLastWorkNanos() {
+        return lastWorkNanos;
+    }
+
+    public static long getLoopBudgetNanos() {
+        return kLoopBudgetNanos;
+    }
+
+    private void publish() {
+        if (publishedSections != sections.size() + 1) {
+            registerChannels();
+        }
+
+        publishSection(loopSection, 0);
+        for (int i = 0; i < sections.size(); i++) {
+            publishSection(sections.get(i), (i + 1) * 3);
+        }
+    }
+
+    private void registerChannels() {
+        // Only happens when new sections show up, normally just once after startup
+        int total = sections.size() + 1;
+        TelemetryPublisher.DoubleChannel[] grown = Arrays.copyOf(channels, total * 3);
+        for (int i = publishedSections; i < total; i++) {
+            String name = i == 0 ? loopSection.name : sections.get(i - 1).name;
+            grown[i * 3] = telemetry.addDouble("Profiler/" + name + "/p50 (ms)", TelemetryPublisher.Rate.kDiagnostic, 0.01);
+            grown[i * 3 + 1] = telemetry.addDouble("Profiler/" + name + "/p99 (ms)", TelemetryPublisher.Rate.kDiagnostic, 0.01);
+            grown[i * 3 + 2] = telemetry.addDouble("Profiler/" + name + "/max (ms)", TelemetryPublisher.Rate.kDiagnostic, 0.01);
+        }
+        channels = grown;
+        publishedSections = total;
+    }
+
+    private void publishSection(Section section, int channel) {
+        int count = section.copyTo(scratch);
+        if (count == 0) {
+            return;
+        }
+        Arrays.sort(scratch, 0, count);
+        channels[channel].set(scratch[count / 2] / 1e6);
+        channels[channel + 1].set(scratch[Math.min(count - 1, count * 99 / 100)] / 1e6);
+        channels[channel + 2].set(scratch[count - 1] / 1e6);
+    }
+
+    private void logOverrun(long loopTime) {
+        report.setLength(0);
+        report.append("Loop overrun: ").append(loopTime / 1000).append(" us, ")
+            .append(overrunsSinceLog).append(" overruns since the last report\n");
+        for (int i = 0; i < sections.size(); i++) {
+            Section section = sections.get(i);
+            if (section.last > 0) {
+                report.append("  ").append(section.name).append(": ").append(section.last / 1000).append(" us\n");
+            }
+        }
+        DataLogManager.log(report.toString());
+    }
+
+    public static class Section {
+        private final String name;
+        private final long[] samples = new long[kWindow];
+        // Atomic so sections can also be recorded from the odometry thread
+        private final AtomicLong accumulator = new AtomicLong();
+        private int next = 0;
+        private int count = 0;
+        private long last = 0;
+
+        private Section(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Adds the time since start to this loop's total for the section.
+         * @param startNanos Value of System.nanoTime() when the timed work started.
+         */
+        public void record(long startNanos) {
+            accumulator.addAndGet(System.nanoTime() - startNanos);
+        }
+
+        private void commit() {
+            last = accumulator.getAndSet(0);
+            samples[next] = last;
+            next = (next + 1) % kWindow;
+            count = Math.min(count + 1, kWindow);
+        }
+
+        private int copyTo(long[] destination) {
+            System.arraycopy(samples, 0, destination, 0, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package frc.robot;
+
+import java.util.function.BooleanSupplier;
+
+import edu.wpi.first.math.filter.LinearFilter;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.ElevatorSim;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Commands;
+import frc.robot.subsystems.Climber;
+import frc.robot.subsystems.ClimberIOSim;
+import frc.robot.subsystems.Ejector;
+import frc.robot.subsystems.EjectorIOSim;
+import frc.robot.subsystems.StatusFrameManager;
+import frc.robot.subsystems.TelemetryPublisher;
+
+/**
+ * Headless mechanism cycle times from the physics simulation. The Ejector and Climber run their
+ * real commands against their simulated IO, with the clock stepped by SimHarness so nothing waits
+ * on real time. The Elevator subsystem isn't part of this project, so its travel is measured on
+ * a standalone ElevatorSim with two control strategies to compare, and the two scoring commands
+ * are compared on that model with the measured eject time.
+ */
+public final class MechanismSimulator {
+    private static final double kTimeout = 5;
+    // Let the coral sensor finish measuring the stop distance
+    private static final double kSettleTime = 0.3;
+
+    // Elevator model. Heights from ElevatorConstants are taken as meters.
+    private static final DCMotor kElevatorMotors = DCMotor.getNEO(2);
+    private static final double kElevatorGearing = 9.0;
+    private static final double kCarriageMassKg = 8.0;
+    private static final double kDrumRadius = 0.022;
+    private static final double kElevatorTolerance = 0.02;
+    private static final double kElevatorP = 40; // volts per meter
+    private static final double kElevatorG = 0.45; // volts to hold the carriage
+    private static final double kElevatorV = 5.5; // volts per meter per second
+    private static final TrapezoidProfile.Constraints kElevatorConstraints = new TrapezoidProfile.Constraints(1.8, 6.0);
+    private static final int kPhysicsSteps = 20;
+
+    private MechanismSimulator() {}
+
+    public static void main(String[] args) {
+        SimHarness.startEnabled();
+
+        TelemetryPublisher telemetry = new TelemetryPublisher();
+        StatusFrameManager statusFrames = new StatusFrameManager(telemetry);
+        Ejector ejector = new Ejector(new EjectorIOSim(), telemetry, statusFrames);
+        Climber climber = new Climber(new ClimberIOSim(), telemetry, statusFrames);
+
+        double intakeTime = SimHarness.run(ejector.intake(), () -> false);
+        SimHarness.step(kSettleTime);
+        System.out.printf("Intake: %.2f s to detection, coral slid %.0f mm after the stop%n",
+            intakeTime, SmartDashboard.getNumber("Coral Stop Distance (mm)", 0));
+
+        double ejectTime = SimHarness.run(ejector.eject(), () -> !ejector.hasCoral());
+        System.out.printf("Eject: %.2f s until the coral cleared the sensor%n", ejectTime);
+
+        compareClimber(climber);
+        compareElevator(Constants.ElevatorConstants.kStow, Constants.ElevatorConstants.kL4);
+        compareElevator(Constants.ElevatorConstants.kL4, Constants.ElevatorConstants.kLoad);
+        compareScoring(Constants.ElevatorConstants.kLoad, Constants.ElevatorConstants.kL4, ejectTime);
+        compareScoring(Constants.ElevatorConstants.kLoad, Constants.ElevatorConstants.kL2, ejectTime);
+
+        System.exit(0);
+    }
+
+    private static void compareClimber(Climber climber) {
+        BooleanSupplier closed = () -> climber.getPositionA() >= Constants.ClimberConstants.kMaxMotorA
+            && climber.getPositionB() >= Constants.ClimberConstants.kMaxMotorB;
+        BooleanSupplier open = () -> climber.getPositionA() <= Constants.ClimberConstants.kMinMoterA
+            && climber.getPositionB() <= Constants.ClimberConstants.kMinMotorB;
+
+        double[] maxSyncError = new double[1];
+        Runnable trackSync = () -> {
+            double a = (climber.getPositionA() - Constants.ClimberConstants.kMinMoterA)
+                / (Constants.ClimberConstants.kMaxMotorA - Constants.ClimberConstants.kMinMoterA);
+            double b = (climber.getPositionB() - Constants.ClimberConstants.kMinMotorB)
+                / (Constants.ClimberConstants.kMaxMotorB - Constants.ClimberConstants.kMinMotorB);
+            maxSyncError[0] = Math.max(maxSyncError[0], Math.abs(a - b));
+        };
+
+        double bangBang = SimHarness.run(climber.clawClose().alongWith(Commands.run(trackSync)), closed);
+        double bangBangSync = maxSyncError[0];
+        SimHarness.run(climber.clawOpen(), open);
+
+        maxSyncError[0] = 0;
+        double profiled = SimHarness.run(climber.clawCloseProfiled().deadlineFor(Commands.run(trackSync)), () -> false);
+        double profiledSync = maxSyncError[0];
+        SimHarness.run(climber.clawOpen(), open);
+
+        maxSyncError[0] = 0;
+        double synced = SimHarness.run(climber.clawCloseSynced().deadlineFor(Commands.run(trackSync)), () -> false);
+        double syncedSync = maxSyncError[0];
+        double syncedSeen = climber.getSyncStatus().lastMaxSyncError;
+
+        maxSyncError[0] = 0;
+        double syncedOpen = SimHarness.run(climber.clawOpenSynced().deadlineFor(Commands.run(trackSync)), () -> false);
+        System.out.printf("Climber close: bang-bang %.2f s (claws up to %.0f%% apart), onboard MAXMotion %.2f s (%.0f%% apart)%n",
+            bangBang, bangBangSync * 100, profiled, profiledSync * 100);
+        System.out.printf("  200 Hz synced profile %.2f s (%.0f%% apart, %.1f%% seen by the controller)%n",
+            synced, syncedSync * 100, syncedSeen * 100);
+        System.out.printf("Climber open: 200 Hz synced profile %.2f s (%.0f%% apart, %.1f%% seen by the controller)%n",
+            syncedOpen, maxSyncError[0] * 100, climber.getSyncStatus().lastMaxSyncError * 100);
+    }
+
+    private static void compareElevator(double from, double to) {
+        double pOnly = simulateElevator(from, to, false);
+        double profiled = simulateElevator(from, to, true);
+        System.out.printf("Elevator %.2f to %.2f: P only %.2f s, trapezoid profile %.2f s%n", from, to, pOnly, profiled);
+    }
+
+    /**
+     * Compares Auto.scoreCoral(), which waits for the elevator to settle and then runs the rollers
+     * for a fixed time, with Auto.scoreCoralPipelined(), which starts them once the predicted
+     * arrival is under the lead time and stops once the coral is clear.
+     * @param from Starting height.
+     * @param to Scoring height.
+     * @param ejectTime Measured time from the rollers starting to the coral clearing the sensor.
+     */
+    private static void compareScoring(double from, double to, double ejectTime) {
+        double sequential = simulateElevator(from, to, true) + Auto.kEjectTimeout;
+        double[] pipelined = simulatePipelined(from, to, ejectTime);
+        System.out.printf("Score %.2f to %.2f: sequential %.2f s, pipelined %.2f s, saved %.2f s (coral cleared %.3f from the setpoint)%n",
+            from, to, sequential, pipelined[0], sequential - pipelined[0], pipelined[1]);
+    }
+
+    /**
+     * Runs the profiled elevator model with the pipelined scoring logic on top.
+     * @param from Starting height.
+     * @param to Scoring height.
+     * @param ejectTime Time from the rollers starting to the coral clearing the sensor.
+     * @return Time the command ends, and how far from the setpoint the elevator was as the coral cleared.
+     */
+    private static double[] simulatePipelined(double from, double to, double ejectTime) {
+        ElevatorSim elevator = createElevator(from, to);
+        TrapezoidProfile profile = new TrapezoidProfile(kElevatorConstraints);
+        TrapezoidProfile.State goal = new TrapezoidProfile.State(to, 0);
+        TrapezoidProfile.State reference = new TrapezoidProfile.State(from, 0);
+        LinearFilter velocityFilter = LinearFilter.movingAverage(3);
+
+        double dt = TimedRobot.kDefaultPeriod;
+        double lastHeight = from;
+        double rollersStart = -1;
+        for (double time = 0; time < kTimeout; time += dt) {
+            reference = profile.calculate(dt, reference, goal);
+            stepElevator(elevator, kElevatorG + kElevatorV * reference.velocity + kElevatorP * (reference.position - elevator.getPositionMeters()));
+
+            double height = elevator.getPositionMeters();
+            double velocity = velocityFilter.calculate((height - lastHeight) / dt);
+            lastHeight = height;
+            if (rollersStart < 0) {
+                // Same test as ElevatorArrivalPredictor, with the model's tolerance standing in for atSetpoint()
+                double arrival = Math.abs(to - height) < kElevatorTolerance ? 0 : ElevatorArrivalPredictor.timeToArrival(to - height, velocity);
+                if (arrival <= Auto.kEjectLeadTime || time + dt >= Auto.kArrivalTimeout) {
+                    rollersStart = time + dt;
+                }
+            } else if (time + dt >= rollersStart + ejectTime) {
+                return new double[] {rollersStart + ejectTime + Auto.kEjectTail, Math.abs(to - height)};
+            }
+        }
+        return new double[] {kTimeout, Double.NaN};
+    }
+
+    private static ElevatorSim createElevator(double from, double to) {
+        double top = Math.max(from, to) + 0.2;
+        return new ElevatorSim(kElevatorMotors, kElevatorGearing, kCarriageMassKg, kDrumRadius, 0, top, true, from);
+    }
+
+    private static void stepElevator(ElevatorSim elevator, double volts) {
+        elevator.setInputVoltage(Math.max(-12, Math.min(12, volts)));
+        for (int i = 0; i < kPhysicsSteps; i++) {
+            elevator.update(TimedRobot.kDefaultPeriod / kPhysicsSteps);
+        }
+    }
+
+    /**
+     * Runs the elevator model to a setpoint with a 20 ms controller and 1 ms physics.
+     * @param from Starting height.
+     * @param to Target height.
+     * @param profiled True to follow a trapezoid profile with feedforward, false for P only.
+     * @return Time until the carriage stays within tolerance, or the timeout.
+     */
+    private static double simulateElevator(double from, double to, boolean profiled) {
+        ElevatorSim elevator = createElevator(from, to);
+        TrapezoidProfile profile = new TrapezoidProfile(kElevatorConstraints);
+        TrapezoidProfile.State goal = new TrapezoidProfile.State(to, 0);
+        TrapezoidProfile.State reference = new TrapezoidProfile.State(from, 0);
+
+        double dt = TimedRobot.kDefaultPeriod;
+        double settledSince = -1;
+        for (double time = 0; time < kTimeout; time += dt) {
+            double volts;
+            if (profiled) {
+                reference = profile.calculate(dt, reference, goal);
+                volts = kElevatorG + kElevatorV * reference.velocity + kElevatorP * (reference.position - elevator.getPositionMeters());
+            } else {
+                volts = kElevatorG + kElevatorP * (to - elevator.getPositionMeters());
+            }
+            stepElevator(elevator, volts);
+
+            if (Math.abs(to - elevator.getPositionMeters()) < kElevatorTolerance && Math.abs(elevator.getVelocityMetersPerSecond()) < 0.05) {
+                if (settledSince < 0) {
+                    settledSince = time + dt;
+                }
+            } else {
+                settledSince = -1;
+            }
+        }
+        return settledSince < 0 ? kTimeout : settledSince;
+    }
+}
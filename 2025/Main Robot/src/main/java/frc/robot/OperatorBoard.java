@@ -3,135 +3,170 @@ package frc.robot;
 import java.util.function.BooleanSupplier;
 
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.wpilibj.GenericHID;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 import frc.robot.Constants.Field.Branch;
+import frc.robot.replay.InputRecorder;
 
 public class OperatorBoard {
-    private static final GenericHID leftPico = new GenericHID(1);
-    private static final GenericHID rightPico = new GenericHID(2);
-
-
-    public static Trigger leftStation(){
-        return new Trigger(() -> leftPico.getRawButton(13));
-
-    }
-
-    public static Trigger rightStation(){
-        return new Trigger(() -> leftPico.getRawButton(14));
+    private static final OperatorBoardIO.OperatorBoardInputs inputs = new OperatorBoardIO.OperatorBoardInputs();
+    private static final InputRecorder.Block inputsBlock = InputRecorder.register("OperatorBoard", inputs);
+    private static OperatorBoardIO io = new OperatorBoardIO.Hardware();
+
+    // Buttons 1-12 on the left board select a reef branch, lowest button number wins.
+    private static final int kBranchButtonCount = 12;
+    private static final int kBranchButtonMask = (1 << kBranchButtonCount) - 1;
+
+    // Reef tag and branch for each left board button, blue alliance first then red.
+    private static final int[][] kBranchTags = {
+        {21, 21, 22, 22, 17, 17, 18, 18, 19, 19, 20, 20},
+        {10, 10, 9, 9, 8, 8, 7, 7, 6, 6, 11, 11}
+    };
+    private static final Branch[] kBranchSides = {
+        Branch.kRight, Branch.kLeft, Branch.kRight, Branch.kLeft, Branch.kRight, Branch.kLeft,
+        Branch.kRight, Branch.kLeft, Branch.kRight, Branch.kLeft, Branch.kRight, Branch.kLeft
+    };
+
+    // Right board buttons 1-5 select an elevator level. Every combination of those five
+    // buttons maps directly to a setpoint, in the same priority order as before.
+    private static final int kLevelButtonMask = (1 << 5) - 1;
+    private static final double[] kLevelTable = new double[kLevelButtonMask + 1];
+
+    // [alliance][lowest pressed button], index kBranchButtonCount means nothing pressed
+    private static final Pose2d[][] waypointTable = new Pose2d[2][kBranchButtonCount + 1];
+
+    // Raw button state, sampled once per loop by sample()
+    private static int leftButtons = 0;
+    private static int rightButtons = 0;
+
+    static {
+        for (int mask = 0; mask <= kLevelButtonMask; mask++) {
+            kLevelTable[mask] = resolveLevel(mask);
+        }
     }
 
-    public static Pose2d getScoringWaypoint(BooleanSupplier isRedAlliance){
-
-        if (leftPico.getRawButton(1)) {
-            return Constants.Field.getWaypoint(
-                !isRedAlliance.getAsBoolean() ? 21 : 10,
-                Branch.kRight);
-        }
-        
-        if (leftPico.getRawButton(2)) {
-            return Constants.Field.getWaypoint(
-                !isRedAlliance.getAsBoolean() ? 21 : 10,
-                Branch.kLeft);
+    /**
+     * Builds the waypoint lookup table for both alliances. Must be called after the
+     * reef waypoints have been loaded.
+     */
+    public static void buildWaypointTable() {
+        for (int alliance = 0; alliance < 2; alliance++) {
+            for (int button = 0; button < kBranchButtonCount; button++) {
+                waypointTable[alliance][button] = ReefWaypoints.getPose(
+                    kBranchTags[alliance][button],
+                    kBranchSides[button]);
+            }
+            waypointTable[alliance][kBranchButtonCount] = null;
         }
+    }
 
-        if (leftPico.getRawButton(3)){
-            return Constants.Field.getWaypoint(
-               !isRedAlliance.getAsBoolean() ? 22 : 9,
-               Branch.kRight);
-        }
+    /**
+     * Replaces where the buttons come from. Call before the first loop.
+     * @param boardIO Operator board IO.
+     */
+    public static void setIO(OperatorBoardIO boardIO) {
+        io = boardIO;
+    }
 
-        if (leftPico.getRawButton(4)){
-            return Constants.Field.getWaypoint(
-                !isRedAlliance.getAsBoolean() ? 22 : 9, 
-                Branch.kLeft);
-        }
+    /**
+     * Reads the full button state of both boards. Bound to the start of the button loop
+     * so every trigger and supplier in the same loop sees the same state.
+     */
+    public static void sample() {
+        io.updateInputs(inputs);
+        inputsBlock.process();
+        leftButtons = inputs.leftButtons;
+        rightButtons = inputs.rightButtons;
+    }
 
-        if (leftPico.getRawButton(5)) {
-            return Constants.Field.getWaypoint(
-                !isRedAlliance.getAsBoolean() ? 17 :8, 
-                Branch.kRight);
-        }
+    private static boolean isPressed(int buttons, int button) {
+        return (buttons & (1 << (button - 1))) != 0;
+    }
 
-        if (leftPico.getRawButton(6)) {
-            return Constants.Field.getWaypoint(
-                !isRedAlliance.getAsBoolean() ? 17 :8, 
-                Branch.kLeft);
-        }
-        
-        if (leftPico.getRawButton(7)) {
-            return Constants.Field.getWaypoint(
-                !isRedAlliance.getAsBoolean() ? 18 : 7,
-                Branch.kRight);
-        }
+    public static Trigger leftStation(){
+        return ConditionCache.trigger("Left Station", LoopProfiler.profile("Left Station", () -> isPressed(leftButtons, 13)));
+    }
 
-        if (leftPico.getRawButton(8)) {
-            return Constants.Field.getWaypoint(
-                !isRedAlliance.getAsBoolean() ? 18 :7, 
-                Branch.kLeft);
-        }
+    public static Trigger rightStation(){
+        return ConditionCache.trigger("Right Station", LoopProfiler.profile("Right Station", () -> isPressed(leftButtons, 14)));
+    }
 
-        if (leftPico.getRawButton(9)) {
-            return Constants.Field.getWaypoint(
-                !isRedAlliance.getAsBoolean()  ? 19 : 6, 
-                Branch.kRight);
-        }
+    public static Pose2d getScoringWaypoint(BooleanSupplier isRedAlliance){
+        return getScoringWaypoint(isRedAlliance.getAsBoolean());
+    }
 
-        if (leftPico.getRawButton(10)) {
-            return Constants.Field.getWaypoint(
-                !isRedAlliance.getAsBoolean() ? 19 :6, 
-                Branch.kLeft);
-        }
+    /**
+     * Looks up the reef waypoint selected on the left board.
+     * @param isRedAlliance True if on the red alliance.
+     * @return Selected waypoint, or null if no branch is selected.
+     */
+    public static Pose2d getScoringWaypoint(boolean isRedAlliance){
+        return waypointTable[isRedAlliance ? 1 : 0][selectedButton()];
+    }
 
-        if (leftPico.getRawButton(11)) {
-            return Constants.Field.getWaypoint(
-                !isRedAlliance.getAsBoolean() ? 20 : 11, 
-                Branch.kRight);
-        }
+    /**
+     * Gets the reef tag of the branch selected on the left board.
+     * @param isRedAlliance True if on the red alliance.
+     * @return Selected tag, or -1 if no branch is selected.
+     */
+    public static int getSelectedTag(boolean isRedAlliance){
+        int button = selectedButton();
+        return button == kBranchButtonCount ? -1 : kBranchTags[isRedAlliance ? 1 : 0][button];
+    }
 
-        if (leftPico.getRawButton(12)) {
-            return Constants.Field.getWaypoint(
-                !isRedAlliance.getAsBoolean() ? 20 : 11, 
-                Branch.kLeft);
-        }
+    /**
+     * Gets which side of its tag the selected branch is on.
+     * @return Selected branch, or null if no branch is selected.
+     */
+    public static Branch getSelectedBranch(){
+        int button = selectedButton();
+        return button == kBranchButtonCount ? null : kBranchSides[button];
+    }
 
-        return null;
+    private static int selectedButton(){
+        // numberOfTrailingZeros returns 32 for an empty mask, clamp that to the "none" slot
+        return Math.min(
+            Integer.numberOfTrailingZeros(leftButtons & kBranchButtonMask),
+            kBranchButtonCount);
     }
 
 
     public static Trigger elevatorBrake(){
-        return new Trigger(() -> rightPico.getRawButton(6));
+        return ConditionCache.trigger("Elevator Brake", LoopProfiler.profile("Elevator Brake", () -> isPressed(rightButtons, 6)));
     }
 
     public static Trigger clawsUp(){
-        return new Trigger(() -> rightPico.getRawButton(9));
+        return ConditionCache.trigger("Claws Up", LoopProfiler.profile("Claws Up", () -> isPressed(rightButtons, 9)));
     }
 
     public static Trigger clawsDown(){
-        return new Trigger(() -> rightPico.getRawButton(8));
+        return ConditionCache.trigger("Claws Down", LoopProfiler.profile("Claws Down", () -> isPressed(rightButtons, 8)));
     }
 
     public static Trigger doTheThing(){
-        return new Trigger(() -> rightPico.getRawButton(7));
+        return ConditionCache.trigger("Do The Thing", LoopProfiler.profile("Do The Thing", () -> isPressed(rightButtons, 7)));
     }
 
     public static double getElevatorSetpoint(){
-        if (rightPico.getRawButton(5))
+        return kLevelTable[rightButtons & kLevelButtonMask];
+    }
+
+    private static double resolveLevel(int buttons){
+        if (isPressed(buttons, 5))
             return Constants.ElevatorConstants.kStow;
 
-        if (rightPico.getRawButton(1))
+        if (isPressed(buttons, 1))
             return Constants.ElevatorConstants.kL4;
-        
-        if (rightPico.getRawButton(2)) {
+
+        if (isPressed(buttons, 2)) {
             return Constants.ElevatorConstants.kL3;
         }
 
-        if (rightPico.getRawButton(3)) 
+        if (isPressed(buttons, 3))
             return Constants.ElevatorConstants.kL2;
 
-        if (rightPico.getRawButton(4))
+        if (isPressed(buttons, 4))
             return Constants.ElevatorConstants.kL1;
 
         return Constants.ElevatorConstants.kStow;
-    } 
+    }
 }
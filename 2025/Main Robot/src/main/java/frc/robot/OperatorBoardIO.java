@@ -0,0 +1,61 @@
+package frc.robot;
+
+import java.nio.ByteBuffer;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.GenericHID;
+import frc.robot.replay.LoggableInputs;
+
+/**
+ * Reads the two operator boards. The same code serves the real robot and simulation, since both
+ * go through the driver station. Replay uses a no-op implementation and the recorded buttons.
+ */
+public interface OperatorBoardIO {
+
+    public static class OperatorBoardInputs implements LoggableInputs {
+        public int leftButtons = 0;
+        public int rightButtons = 0;
+
+        @Override
+        public int size() {
+            return 2 * 4;
+        }
+
+        @Override
+        public void toLog(ByteBuffer buffer, int offset) {
+            buffer.putInt(offset, leftButtons);
+            buffer.putInt(offset + 4, rightButtons);
+        }
+
+        @Override
+        public void fromLog(ByteBuffer buffer, int offset) {
+            leftButtons = buffer.getInt(offset);
+            rightButtons = buffer.getInt(offset + 4);
+        }
+    }
+
+    /**
+     * Copies both boards' buttons into inputs as bitmasks, button 1 in bit 0.
+     * @param inputs Inputs to fill.
+     */
+    default void updateInputs(OperatorBoardInputs inputs) {}
+
+    /**
+     * Operator boards connected through the driver station.
+     */
+    public static class Hardware implements OperatorBoardIO {
+        private final GenericHID leftPico = new GenericHID(1);
+        private final GenericHID rightPico = new GenericHID(2);
+
+        @Override
+        public void updateInputs(OperatorBoardInputs inputs) {
+            inputs.leftButtons = buttonMask(leftPico);
+            inputs.rightButtons = buttonMask(rightPico);
+        }
+
+        private static int buttonMask(GenericHID board) {
+            // Shift as a long, a board can report all 32 buttons
+            return DriverStation.getStickButtons(board.getPort()) & (int) ((1L << board.getButtonCount()) - 1);
+        }
+    }
+}
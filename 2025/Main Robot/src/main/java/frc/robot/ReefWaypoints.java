@@ -0,0 +1,118 @@
+package frc.robot;
+
+import java.util.Arrays;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.Constants.Field.Branch;
+
+/**
+ * Reef scoring waypoints for both alliances stored as flat x, y and heading arrays indexed by
+ * (tag, branch), filled once at startup from Constants.Field. Lookups are an array index and the
+ * poses are built once, so the hot paths never recalculate or allocate.
+ *
+ * <p>The table isn't loaded from a file. Constants.Field has to calculate its waypoints at
+ * startup anyway, since the drivetrain reads them from there, and copying 24 poses out of it
+ * costs less than reading and checking a file.
+ */
+public final class ReefWaypoints {
+    // Field is rotationally symmetric about its center, which maps one alliance's reef onto the other
+    public static final double kFieldLength = 17.548;
+    public static final double kFieldWidth = 8.052;
+
+    private static final int[] kTags = {6, 7, 8, 9, 10, 11, 17, 18, 19, 20, 21, 22};
+    // Blue tag 17 faces the same way as red tag 8, and so on around the reef
+    private static final int[] kMirroredTags = {19, 18, 17, 22, 21, 20, 8, 7, 6, 11, 10, 9};
+    private static final int kBranches = Branch.values().length;
+
+    private static final int[] tagIndex = new int[23];
+    private static final double[] x = new double[kTags.length * kBranches];
+    private static final double[] y = new double[kTags.length * kBranches];
+    private static final double[] heading = new double[kTags.length * kBranches];
+    private static final Pose2d[] poses = new Pose2d[kTags.length * kBranches];
+
+    static {
+        Arrays.fill(tagIndex, -1);
+        for (int i = 0; i < kTags.length; i++) {
+            tagIndex[kTags[i]] = i;
+        }
+    }
+
+    private ReefWaypoints() {}
+
+    /**
+     * Calculates the Constants.Field waypoints and fills the table from them. Call once at startup.
+     */
+    public static void load() {
+        Constants.Field.calculateScoringWaypoints();
+        calculate();
+        buildPoses();
+    }
+
+    private static void buildPoses() {
+        for (int i = 0; i < poses.length; i++) {
+            poses[i] = new Pose2d(x[i], y[i], new Rotation2d(heading[i]));
+        }
+    }
+
+    private static void calculate() {
+        for (int tag : kTags) {
+            for (Branch branch : Branch.values()) {
+                Pose2d pose = Constants.Field.getWaypoint(tag, branch);
+                int i = index(tag, branch);
+                x[i] = pose.getX();
+                y[i] = pose.getY();
+                heading[i] = pose.getRotation().getRadians();
+            }
+        }
+    }
+
+    private static int index(int tag, Branch branch) {
+        return tagIndex[tag] * kBranches + branch.ordinal();
+    }
+
+    public static double getX(int tag, Branch branch) {
+        return x[index(tag, branch)];
+    }
+
+    public static double getY(int tag, Branch branch) {
+        return y[index(tag, branch)];
+    }
+
+    public static double getHeading(int tag, Branch branch) {
+        return heading[index(tag, branch)];
+    }
+
+    /**
+     * Gets a waypoint as a Pose2d. The poses are built once at load, so this doesn't allocate.
+     * @param tag Reef AprilTag ID.
+     * @param branch Reef branch.
+     * @return Scoring waypoint.
+     */
+    public static Pose2d getPose(int tag, Branch branch) {
+        return poses[index(tag, branch)];
+    }
+
+    /**
+     * Gets the tag in the same spot on the other alliance's reef.
+     * @param tag Reef AprilTag ID.
+     * @return Mirrored reef AprilTag ID.
+     */
+    public static int getMirroredTag(int tag) {
+        return kMirroredTags[tagIndex[tag]];
+    }
+
+    /**
+     * Writes a waypoint mirrored onto the other alliance's half of the field into out, as
+     * {x, y, heading}. Only does the symmetry transform, nothing is looked up again.
+     * @param tag Reef AprilTag ID.
+     * @param branch Reef branch.
+     * @param out Array of at least 3 values.
+     */
+    public static void getMirrored(int tag, Branch branch, double[] out) {
+        int i = index(tag, branch);
+        out[0] = kFieldLength - x[i];
+        out[1] = kFieldWidth - y[i];
+        out[2] = heading[i] + Math.PI;
+    }
+}
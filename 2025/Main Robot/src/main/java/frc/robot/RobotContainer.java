@@ -6,11 +6,21 @@ package frc.robot;
 
 import static edu.wpi.first.units.Units.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
 import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.Command.InterruptionBehavior;
@@ -18,105 +28,205 @@ import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 import frc.robot.Constants.Field.Branch;
 import frc.robot.generated.TunerConstants;
+import frc.robot.replay.InputRecorder;
 import frc.robot.subsystems.Blinkin;
 import frc.robot.subsystems.CommandSwerveDrivetrain;
 import frc.robot.subsystems.Ejector;
+import frc.robot.subsystems.EjectorIO;
+import frc.robot.subsystems.EjectorIOSim;
+import frc.robot.subsystems.EjectorIOSpark;
 import frc.robot.subsystems.Elevator;
+import frc.robot.subsystems.StatusFrameManager;
+import frc.robot.subsystems.TelemetryPublisher;
+import frc.robot.trajectory.BakedTrajectories;
+import frc.robot.trajectory.FollowCachedPath;
+import frc.robot.trajectory.PathCache;
+import frc.robot.vision.LimelightCamera;
+import frc.robot.vision.ReplayCamera;
+import frc.robot.vision.VisionCamera;
+import frc.robot.vision.VisionPipeline;
 
 public class RobotContainer {
 
+    private final long constructionStart = System.nanoTime();
     private final double joystickDeadband = 0.1;
+    // Hoisted out of the Face Reef trigger, which is evaluated every loop
+    private final double faceReefDistance = Feet.of(10).in(Meters);
+    // Disabled loops spent warming up, and auto passes per loop. About 3 seconds in total.
+    private final int warmUpLoops = 150;
+    private final int warmUpPassesPerLoop = 4;
+    // Loops between drivetrain dashboard updates, 10 Hz
+    private final int telemeterizeEveryLoops = 5;
     private final Telemetry logger = new Telemetry(TunerConstants.kSpeedAt12Volts.in(MetersPerSecond));
     private final CommandXboxController controller = new CommandXboxController(0);
     private final CommandXboxController operatorController = new CommandXboxController(3);
+    // Constructed ahead of the drivetrain so their periodics run at the start of every loop, in
+    // this order: telemetry, profiler, load shedder, input recorder, condition cache, cycle timeline
+    private final TelemetryPublisher telemetry = new TelemetryPublisher();
+    private final LoopProfiler profiler = new LoopProfiler(telemetry);
+    private final LoadShedder loadShedder = new LoadShedder(telemetry);
+    private final InputRecorder inputRecorder = new InputRecorder();
+    private final ConditionCache conditionCache = new ConditionCache(telemetry);
+    private final CycleTimeline cycleTimeline = new CycleTimeline(telemetry);
+    private final LoopProfiler.Section telemeterizeSection = LoopProfiler.section("Telemetry.telemeterize");
+    private final LoadShedder.Task telemeterizeTask = LoadShedder.task("Telemetry.telemeterize", LoadShedder.Priority.kDeferrable);
     public final CommandSwerveDrivetrain drivetrain = TunerConstants.createDrivetrain();
+    private final VisionPipeline vision = new VisionPipeline(
+        visionCamera(), VisionPipeline.estimator(drivetrain), telemetry, visionRecorder());
     private final Elevator elevator = new Elevator();
-    private final Ejector ejector = new Ejector();
+    private final StatusFrameManager statusFrames = new StatusFrameManager(telemetry);
+    private final Ejector ejector = new Ejector(ejectorIO(), telemetry, statusFrames);
     private final Blinkin blinkin = new Blinkin();
-    private final Auto auto = new Auto(drivetrain, ejector, elevator, () -> isRedAlliance());
-    private final SendableChooser<Command> autoChooser = new SendableChooser<>();
+    // Constructed after the mechanisms so it samples values they updated this loop
+    private final BinaryTelemetryLog binaryLog = new BinaryTelemetryLog(DataLogManager.getLog());
+    private final BakedTrajectories trajectories = BakedTrajectories.load();
+    private final PathCache pathCache = new PathCache(telemetry);
+    // One shared supplier, so conditions that need it don't create a new lambda every loop
+    private final BooleanSupplier redAlliance = this::isRedAlliance;
+    // Every driver translation command goes through the tip limiter, stepped once per loop
+    private final TipLimiter tipLimiter = new TipLimiter(drivetrain, elevator::getHeight, redAlliance);
+    private final Supplier<TipLimiter> limitedDrive = ConditionCache.value("Tip Limited Drive",
+        () -> tipLimiter.update(squareInput(getVelocityX()), squareInput(getVelocityY())));
+    private final DoubleSupplier driveX = () -> limitedDrive.get().getX();
+    private final DoubleSupplier driveY = () -> limitedDrive.get().getY();
+    // Driver commands keep full top speed, the tip limiter handles them. Everything else, paths
+    // and goToPose, still has its top speed scaled with the elevator height.
+    private final ArrayList<Command> tipLimitedCommands = new ArrayList<>();
+    private final DoubleSupplier stowedHeight = () -> Constants.ElevatorConstants.kStow;
+    private final DoubleSupplier elevatorHeight = () -> elevator.getHeight();
+    private final Auto auto = new Auto(drivetrain, ejector, elevator, redAlliance, trajectories, telemetry);
+    private final AutoRegistry autoRegistry = new AutoRegistry(redAlliance, telemetry);
 
     private boolean isRedAlliance = false;
     public boolean allianceIsSet = false;
+    private int warmUpLoopsDone = 0;
+    private int telemeterizeLoops = 0;
+    private double warmUpResult = 0;
 
     public RobotContainer() {
         
-        // Send autonomous options to dashboard.
-        autoChooser.setDefaultOption("Default: Nothing", null);
-        autoChooser.addOption("Center", auto.centerOnePiece());
-        autoChooser.addOption("Left", auto.leftOnePiece());
-        autoChooser.addOption("Right", auto.rightOnePiece());
-        SmartDashboard.putData("Auto Choices", autoChooser);
+        // Send autonomous options to dashboard. Only the selected routine is ever built.
+        autoRegistry.setDefaultOption("Default: Nothing", () -> null);
+        autoRegistry.addOption("Center", auto::centerOnePiece);
+        autoRegistry.addOption("Left", auto::leftOnePiece);
+        autoRegistry.addOption("Right", auto::rightOnePiece);
+        for (AutoPlan plan : AutoPlan.kPlans) {
+            autoRegistry.addOption(plan.getName(), () -> auto.runPlan(plan));
+        }
+        autoRegistry.publish("Auto Choices");
 
-        // Run initial calculations for all scoring waypoints
-        Constants.Field.calculateScoringWaypoints();
+        if (InputRecorder.getMode() == InputRecorder.Mode.kReplay) {
+            OperatorBoard.setIO(new OperatorBoardIO() {});
+        }
+
+        // Calculate the Constants.Field waypoints the drivetrain uses and copy them into the flat table
+        ReefWaypoints.load();
+        OperatorBoard.buildWaypointTable();
 
         // Set default commands for all subsystems
-        drivetrain.setDefaultCommand(Commands.sequence(
+        drivetrain.setDefaultCommand(tipLimited(LoopProfiler.profile(Commands.sequence(
             new InstantCommand(() -> drivetrain.updateHeadingCorrection()),
             drivetrain.fieldCentricFacingAngle(
-                () -> squareInput(getVelocityX()),
-                () -> squareInput(getVelocityY()),
+                driveX,
+                driveY,
                 () -> drivetrain.getHeadingCorrectionAngle()
-        )));
+        )).withName("Drive"))));
 
         ejector.setDefaultCommand(ejector.stop());
         elevator.setDefaultCommand(elevator.stow());
         blinkin.setDefaultCommand(blinkin.off());
 
         // Start telemetry logging
-        drivetrain.registerTelemetry(logger::telemeterize);
+        binaryLog.addMechanism("Elevator/Height", elevator::getHeight);
+        binaryLog.addMechanism("Ejector/Top Output", ejector::getTopMotorOutput);
+        binaryLog.addMechanism("Ejector/Bottom Output", ejector::getBottomMotorOutput);
+        binaryLog.addMechanism("Ejector/Has Coral", () -> ejector.hasCoral() ? 1 : 0);
+        binaryLog.start();
+        // Replay steps vision from its periodic, in time with the replayed frames
+        if (InputRecorder.getMode() != InputRecorder.Mode.kReplay) {
+            vision.start();
+        }
+        // Every odometry sample goes to the binary log, which copies primitives and never allocates.
+        // The dashboard view is sent from the main loop instead, see publishDriveTelemetry().
+        drivetrain.registerTelemetry(binaryLog::recordDrive);
 
         configureBindings();
+
+        double startupMillis = (System.nanoTime() - constructionStart) / 1e6;
+        SmartDashboard.putNumber("Startup Time (ms)", startupMillis);
+        DataLogManager.log("RobotContainer constructed in " + startupMillis + " ms");
     }
 
     private void configureBindings() {
 
+        // Sample the operator board before any trigger below is polled. Bindings run in the
+        // order they are added to the button loop, so this has to stay first.
+        CommandScheduler.getInstance().getDefaultButtonLoop().bind(OperatorBoard::sample);
+        CommandScheduler.getInstance().getDefaultButtonLoop().bind(ConditionCache::beginTick);
+        CommandScheduler.getInstance().getDefaultButtonLoop().bind(this::publishDriveTelemetry);
+
+        // Shared by several bindings below, each is evaluated once per loop however often it's asked for
+        BooleanSupplier hasCoral = ConditionCache.condition("Has Coral", ejector::hasCoral);
+        Supplier<Pose2d> scoringWaypoint = ConditionCache.value("Scoring Waypoint",
+            () -> OperatorBoard.getScoringWaypoint(isRedAlliance));
+        Trigger branchSelected = ConditionCache.trigger("Branch Selected",
+            LoopProfiler.profile("Branch Selected", () -> scoringWaypoint.get() != null));
+        BooleanSupplier atPose = ConditionCache.condition("At Pose",
+            LoopProfiler.profile("At Pose", () -> drivetrain.atPose()));
+
         /* ====== MAIN DRIVER BINDINGS ===== */
 
         // "Zero" the gyro towards the current facing direction
-        controller.a().onTrue(Commands.runOnce(() -> {
+        new Trigger(LoopProfiler.profile("Zero Gyro", controller.a())).onTrue(Commands.runOnce(() -> {
             drivetrain.seedFieldCentric();
             drivetrain.updateHeadingCorrection();
         },  drivetrain));
 
         // Use a fully manual drive whenever the right thumbstick isn't 0, meaning the driver is trying
         // to manually rotate the robot. This command is not interruptable.
-        new Trigger(() -> getVelocityRotation() != 0).whileTrue(drivetrain.manualDrive(
-            () -> squareInput(getVelocityX()),
-            () -> squareInput(getVelocityY()),
+        new Trigger(LoopProfiler.profile("Manual Rotation", () -> getVelocityRotation() != 0)).whileTrue(tipLimited(drivetrain.manualDrive(
+            driveX,
+            driveY,
             () -> squareInput(getVelocityRotation())
-        ).withInterruptBehavior(InterruptionBehavior.kCancelIncoming));
+        ).withInterruptBehavior(InterruptionBehavior.kCancelIncoming)));
 
         // When we have coral, are close enough to the reef, and are in teleop, update the default
         // drive command to face the reef while the driver maintains translation control. If any of those
         // conditions are no longer true, reset default command to standard drive with heading correction.
-        new Trigger(() -> ejector.hasCoral())
-            .and(new Trigger(() -> drivetrain.getDistanceFromReefCenter(() -> isRedAlliance) < Feet.of(10).in(Meters)))
-            .and(() -> DriverStation.isTeleop())
-            .whileTrue(drivetrain.fieldCentricFacingAngle(
-                () -> squareInput(getVelocityX()),
-                () -> squareInput(getVelocityY()),
-                () -> drivetrain.getHeadingTowardsReef()));
+        ConditionCache.trigger("Face Reef", LoopProfiler.profile("Face Reef", () -> hasCoral.getAsBoolean()
+                && drivetrain.getDistanceFromReefCenter(redAlliance) < faceReefDistance
+                && DriverStation.isTeleop()))
+            .whileTrue(tipLimited(drivetrain.fieldCentricFacingAngle(
+                driveX,
+                driveY,
+                () -> drivetrain.getHeadingTowardsReef())));
             
 
         // Command the robot to face its back side towards the right loading station. The driver
         // still has full translation control.
-        controller.rightTrigger().whileTrue(drivetrain.fieldCentricFacingAngle(
-            () -> squareInput(getVelocityX()),
-            () -> squareInput(getVelocityY()),
-            () -> Constants.Field.kRightLoadStationHeading));
-
-        controller.leftTrigger().whileTrue(drivetrain.fieldCentricFacingAngle(
-            () -> squareInput(getVelocityX()),
-            () -> squareInput(getVelocityY()),
-            () -> Constants.Field.kLeftLoadStationHeading));
-
-        controller.rightBumper().and(() -> (OperatorBoard.getScoringWaypoint(() -> isRedAlliance) != null)).whileTrue(
-            drivetrain.goToPose(
-                () -> OperatorBoard.getScoringWaypoint(() -> isRedAlliance),
-                () -> isRedAlliance
-            ).andThen(drivetrain.brake()));
+        new Trigger(LoopProfiler.profile("Right Station Heading", controller.rightTrigger())).whileTrue(tipLimited(drivetrain.fieldCentricFacingAngle(
+            driveX,
+            driveY,
+            () -> Constants.Field.kRightLoadStationHeading)));
+
+        new Trigger(LoopProfiler.profile("Left Station Heading", controller.leftTrigger())).whileTrue(tipLimited(drivetrain.fieldCentricFacingAngle(
+            driveX,
+            driveY,
+            () -> Constants.Field.kLeftLoadStationHeading)));
+
+        // Follow a cached path around the reef to the selected branch, then line up on it. A new
+        // selection on the way is spliced in. On a cache miss goToPose drives the whole way.
+        new Trigger(LoopProfiler.profile("Follow Path", controller.rightBumper())).and(branchSelected).whileTrue(
+            new FollowCachedPath(
+                drivetrain,
+                pathCache,
+                () -> OperatorBoard.getSelectedTag(isRedAlliance),
+                OperatorBoard::getSelectedBranch,
+                redAlliance
+            ).andThen(drivetrain.goToPose(
+                scoringWaypoint,
+                redAlliance
+            )).andThen(drivetrain.brake()));
 
         /* ===== OPERATOR BINDINGS ===== */
         OperatorBoard.doTheThing().and(OperatorBoard.leftStation().or(OperatorBoard.rightStation())).whileTrue(
@@ -127,26 +237,117 @@ public class RobotContainer {
             auto.reverseCoralAtLoadHeight().withTimeout(1).andThen(auto.loadCoral())
         );
 
-        OperatorBoard.doTheThing().and(() -> (OperatorBoard.getScoringWaypoint(() -> isRedAlliance) != null)).whileTrue(
-            auto.scoreCoral(() -> OperatorBoard.getElevatorSetpoint())
+        OperatorBoard.doTheThing().and(branchSelected).whileTrue(
+            auto.scoreCoralPipelined(() -> OperatorBoard.getElevatorSetpoint())
         );
 
+        /* ===== CYCLE TIMELINE ===== */
+        // Loading and ejecting are marked by the commands in Auto, the rest by these edges
+        OperatorBoard.doTheThing().onTrue(CycleTimeline.markCommand(CycleTimeline.Event.kPress));
+        new Trigger(hasCoral).onTrue(CycleTimeline.markCommand(CycleTimeline.Event.kCoralAcquired));
+        ConditionCache.trigger("At Pose", atPose)
+            .onTrue(CycleTimeline.markCommand(CycleTimeline.Event.kAtPose));
+        ConditionCache.trigger("Elevator At Setpoint", LoopProfiler.profile("Elevator At Setpoint", () -> elevator.atSetpoint()))
+            .onTrue(CycleTimeline.markCommand(CycleTimeline.Event.kElevatorAtSetpoint));
+
         OperatorBoard.elevatorBrake().whileTrue(elevator.stop().withInterruptBehavior(InterruptionBehavior.kCancelIncoming));
         
         /* ===== LED PATTERN TRIGGERS ===== */
-        new Trigger(() -> ejector.hasCoral()).onTrue(blinkin.taskComplete());
-        new Trigger(() -> drivetrain.atPose()).whileTrue(blinkin.taskComplete());
-        new Trigger(() -> Math.abs(elevator.getHeight() - Constants.ElevatorConstants.kLoad) < 0.1)
+        // Cosmetic, so the pattern conditions are the first thing throttled when loops run long
+        new Trigger(hasCoral).onTrue(blinkin.taskComplete());
+        new Trigger(LoadShedder.gate("At Pose LED", LoadShedder.Priority.kDeferrable, atPose))
+            .whileTrue(blinkin.taskComplete());
+        new Trigger(LoadShedder.gate("Load Height LED", LoadShedder.Priority.kDeferrable,
+                LoopProfiler.profile("Load Height LED", () -> Math.abs(elevator.getHeight() - Constants.ElevatorConstants.kLoad) < 0.1)))
             .and(OperatorBoard.leftStation().or(OperatorBoard.rightStation()))
             .whileTrue(blinkin.elevatorAtLoadHeight());
 
+        /* ===== DISABLED ===== */
+        // Keep the selected auto built for the current alliance, warm up the auto math and
+        // command construction for the first few seconds of disabled, and plan the common teleop
+        // paths in the background. Nothing here runs a command or sends a motor request.
+        new Trigger(DriverStation::isDisabled).whileTrue(Commands.run(() -> {
+            autoRegistry.update();
+            pathCache.prewarm(isRedAlliance);
+            if (warmUpLoopsDone < warmUpLoops) {
+                warmUpResult += auto.warmUp(warmUpPassesPerLoop);
+                warmUpLoopsDone++;
+            }
+        }).ignoringDisable(true).withName("Auto Warm Up"));
+
         // Keep this here for testing purposes
-        operatorController.rightTrigger().whileTrue(elevator.manualDrive(
+        new Trigger(LoopProfiler.profile("Manual Elevator", operatorController.rightTrigger())).whileTrue(elevator.manualDrive(
             () -> -MathUtil.applyDeadband(operatorController.getRightY(), 0.075)));
     }
 
+    /**
+     * Sends the drivetrain's dashboard view from the main loop every few loops, and less often or
+     * not at all while loads are shed. The binary log already has every odometry sample.
+     */
+    private void publishDriveTelemetry() {
+        if (++telemeterizeLoops < telemeterizeEveryLoops || !telemeterizeTask.shouldRun()) {
+            return;
+        }
+        telemeterizeLoops = 0;
+        long start = System.nanoTime();
+        logger.telemeterize(drivetrain.getState());
+        telemeterizeTask.record(start);
+        telemeterizeSection.record(start);
+    }
+
+    /**
+     * Picks the ejector's hardware layer for the current mode. Replay uses the interface's no-op
+     * defaults, since the inputs come from the log.
+     * @return Ejector IO.
+     */
+    private static EjectorIO ejectorIO() {
+        switch (InputRecorder.getMode()) {
+            case kReal:
+                return new EjectorIOSpark();
+            case kSim:
+                return new EjectorIOSim();
+            default:
+                return new EjectorIO() {};
+        }
+    }
+
+    /**
+     * Picks the camera for the current mode. Replay plays back the vision log given to the
+     * replay runner, if there is one. The simulation has no camera.
+     * @return Vision camera.
+     */
+    private static VisionCamera visionCamera() {
+        switch (InputRecorder.getMode()) {
+            case kReal:
+                return new LimelightCamera("limelight");
+            case kReplay:
+                String log = ReplayCamera.getReplayLog();
+                if (log != null) {
+                    try {
+                        return new ReplayCamera(log, () -> InputRecorder.getFrameTimestamp() / 1e6, Timer::getFPGATimestamp);
+                    } catch (IOException e) {
+                        DataLogManager.log("Vision: couldn't open " + log + ", replaying without vision: " + e.getMessage());
+                    }
+                }
+                return new VisionCamera() {};
+            default:
+                return new VisionCamera() {};
+        }
+    }
+
+    /**
+     * Records camera results on the real robot, next to the input log.
+     * @return Recorder, or null when not on the real robot.
+     */
+    private static ReplayCamera.Recorder visionRecorder() {
+        if (InputRecorder.getMode() != InputRecorder.Mode.kReal) {
+            return null;
+        }
+        return new ReplayCamera.Recorder(new File(InputRecorder.getLogDirectory(), "vision_" + System.currentTimeMillis() + ".bin"));
+    }
+
     public Command getAutonomousCommand() {
-        return autoChooser.getSelected();
+        return autoRegistry.getSelected();
     }
 
     /**
@@ -207,11 +408,34 @@ public class RobotContainer {
         return isRedAlliance;
     }
 
+    /**
+     * Getter for the ejector subsystem, used by the benchmarks.
+     * @return The robot's ejector.
+     */
+    public Ejector getEjector() {
+        return ejector;
+    }
+
+    /**
+     * Marks a driver drive command whose translation goes through the tip limiter, so it keeps
+     * full top speed with the elevator up.
+     * @param command Drive command using driveX and driveY.
+     * @return The same command.
+     */
+    private Command tipLimited(Command command) {
+        tipLimitedCommands.add(command);
+        return command;
+    }
+
     /**
      * Wrapper for the drivetrain's updateMaxSpeed method to be callable
-     * in robotPeriodic in Robot.java
+     * in robotPeriodic in Robot.java. Driver commands get full speed, the tip limiter keeps their
+     * acceleration safe for the elevator height instead. Paths, goToPose and auto don't go
+     * through the limiter, so they keep the top speed scaled with the elevator height.
      */
     public void updateDrivetrainSpeed() {
-        drivetrain.updateMaxSpeed(elevator::getHeight);
+        Command current = drivetrain.getCurrentCommand();
+        boolean limited = current != null && tipLimitedCommands.contains(current);
+        drivetrain.updateMaxSpeed(limited ? stowedHeight : elevatorHeight);
     }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package frc.robot;
+
+import java.util.function.BooleanSupplier;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Setup and stepping shared by the headless simulators and the replay runner. The clock is
+ * paused and only moves when it's stepped, so nothing waits on real time.
+ */
+public final class SimHarness {
+    private static final double kTimeout = 5;
+
+    private SimHarness() {}
+
+    /**
+     * Starts the HAL with the clock paused and a driver station attached. Call first in main().
+     */
+    public static void start() {
+        HAL.initialize(500, 0);
+        SimHooks.pauseTiming();
+        DriverStationSim.setDsAttached(true);
+    }
+
+    /**
+     * Starts the HAL like start() and enables the robot, for simulators that run commands.
+     */
+    public static void startEnabled() {
+        start();
+        DriverStationSim.setEnabled(true);
+        DriverStationSim.notifyNewData();
+    }
+
+    /**
+     * Runs a command in simulated time until it ends, done is true, or the timeout.
+     * @param command Command to run.
+     * @param done Extra end condition.
+     * @return Simulated seconds it ran for.
+     */
+    public static double run(Command command, BooleanSupplier done) {
+        CommandScheduler scheduler = CommandScheduler.getInstance();
+        scheduler.schedule(command);
+        double time = 0;
+        while (scheduler.isScheduled(command) && !done.getAsBoolean() && time < kTimeout) {
+            SimHooks.stepTiming(TimedRobot.kDefaultPeriod);
+            scheduler.run();
+            time += TimedRobot.kDefaultPeriod;
+        }
+        command.cancel();
+        scheduler.run();
+        return time;
+    }
+
+    /**
+     * Steps the clock and the scheduler for a while, one loop at a time.
+     * @param seconds Simulated time to step.
+     */
+    public static void step(double seconds) {
+        for (double time = 0; time < seconds; time += TimedRobot.kDefaultPeriod) {
+            SimHooks.stepTiming(TimedRobot.kDefaultPeriod);
+            CommandScheduler.getInstance().run();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package frc.robot;
+
+import static edu.wpi.first.units.Units.MetersPerSecond;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.generated.TunerConstants;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+
+/**
+ * Limits how fast the driver's translation command can change, so the robot never accelerates
+ * or brakes hard enough to tip. The center of gravity rises with the elevator, and the robot
+ * tips over the wheelbase edge it's accelerating towards once acceleration times CoG height
+ * exceeds gravity times the distance to that edge. So the limit depends on both elevator height
+ * and the direction of the acceleration relative to the robot. Top speed is never limited,
+ * since cruising at constant velocity can't tip the robot.
+ *
+ * <p>Sits between the joystick suppliers and the drive requests, working in fractions of max
+ * speed in the operator's frame like they do. Heights from ElevatorConstants are taken as
+ * meters. kBaseCogHeight and kCogRisePerMeter are guesses, find them from the angle the robot
+ * balances at when tilted on one edge, with the elevator down and at full height.
+ */
+public class TipLimiter {
+    private static final double kGravity = 9.81;
+    // Distance from the CoG to the front or back and side edges of the wheelbase, meters
+    private static final double kHalfLength = 0.40;
+    private static final double kHalfWidth = 0.40;
+    // CoG height with the elevator down, and how far it rises per meter of elevator travel
+    private static final double kBaseCogHeight = 0.18;
+    private static final double kCogRisePerMeter = 0.20;
+    // Fraction of the tipping acceleration that's allowed
+    private static final double kSafetyFactor = 0.6;
+    // Past this the wheels slip before anything tips
+    private static final double kTractionLimit = 8.0;
+    // Not called for this long, the robot was driven by something else, start from its velocity
+    private static final double kResetTime = 0.1;
+    private static final double kMaxSpeed = TunerConstants.kSpeedAt12Volts.in(MetersPerSecond);
+
+    private final CommandSwerveDrivetrain drivetrain;
+    private final DoubleSupplier height;
+    private final BooleanSupplier isRedAlliance;
+
+    // Commanded velocity in the operator's frame, meters per second
+    private double vx = 0;
+    private double vy = 0;
+    private double lastTime = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param drivetrain Drivetrain, for its heading and velocity. Only used by update(), so a
+     *     simulation that calls step() directly can pass null.
+     * @param height Elevator height.
+     * @param isRedAlliance True if on the red alliance, where the operator faces the other way.
+     */
+    public TipLimiter(CommandSwerveDrivetrain drivetrain, DoubleSupplier height, BooleanSupplier isRedAlliance) {
+        this.drivetrain = drivetrain;
+        this.height = height;
+        this.isRedAlliance = isRedAlliance;
+    }
+
+    /**
+     * Steps the limiter towards the driver's command. Call once per loop.
+     * @param x Requested x, fraction of max speed in the operator's frame.
+     * @param y Requested y, fraction of max speed in the operator's frame.
+     * @return This limiter, to read the limited command from.
+     */
+    public TipLimiter update(double x, double y) {
+        SwerveDriveState state = drivetrain.getState();
+        double perspective = isRedAlliance.getAsBoolean() ? Math.PI : 0;
+        double heading = state.Pose.getRotation().getRadians() + perspective;
+
+        double now = Timer.getFPGATimestamp();
+        double dt = now - lastTime;
+        lastTime = now;
+        if (dt > kResetTime) {
+            // Speeds are robot relative, turn them into the operator's frame
+            double cos = Math.cos(heading);
+            double sin = Math.sin(heading);
+            vx = state.Speeds.vxMetersPerSecond * cos - state.Speeds.vyMetersPerSecond * sin;
+            vy = state.Speeds.vxMetersPerSecond * sin + state.Speeds.vyMetersPerSecond * cos;
+            dt = 0;
+        }
+
+        step(x * kMaxSpeed, y * kMaxSpeed, heading, height.getAsDouble(), dt);
+        return this;
+    }
+
+    /**
+     * Moves the commanded velocity towards a target, as fast as the tip limit allows.
+     * @param targetVx Target x velocity, meters per second.
+     * @param targetVy Target y velocity, meters per second.
+     * @param heading Robot heading in the same frame as the velocities, radians.
+     * @param elevatorHeight Elevator height.
+     * @param dt Seconds since the last step.
+     */
+    public void step(double targetVx, double targetVy, double heading, double elevatorHeight, double dt) {
+        double dvx = targetVx - vx;
+        double dvy = targetVy - vy;
+        double change = Math.hypot(dvx, dvy);
+        if (change < 1e-9) {
+            return;
+        }
+
+        double limit = getAccelerationLimit(Math.atan2(dvy, dvx) - heading, elevatorHeight);
+        double scale = Math.min(1, limit * dt / change);
+        vx += dvx * scale;
+        vy += dvy * scale;
+    }
+
+    /**
+     * Gets the largest allowed acceleration in a direction.
+     * @param direction Direction of the acceleration relative to the robot's front, radians.
+     * @param elevatorHeight Elevator height.
+     * @return Allowed acceleration, meters per second squared.
+     */
+    public static double getAccelerationLimit(double direction, double elevatorHeight) {
+        return Math.min(kTractionLimit, getTipAcceleration(direction, elevatorHeight) * kSafetyFactor);
+    }
+
+    /**
+     * Gets the acceleration that would just start to tip the robot.
+     * @param direction Direction of the acceleration relative to the robot's front, radians.
+     * @param elevatorHeight Elevator height.
+     * @return Tipping acceleration, meters per second squared.
+     */
+    public static double getTipAcceleration(double direction, double elevatorHeight) {
+        // Distance from the CoG to the edge of the wheelbase rectangle along the direction
+        double cos = Math.abs(Math.cos(direction));
+        double sin = Math.abs(Math.sin(direction));
+        double edge = Math.min(
+            cos > 1e-9 ? kHalfLength / cos : Double.MAX_VALUE,
+            sin > 1e-9 ? kHalfWidth / sin : Double.MAX_VALUE);
+        double cogHeight = kBaseCogHeight + kCogRisePerMeter * Math.max(0, elevatorHeight);
+        return kGravity * edge / cogHeight;
+    }
+
+    public static double getTractionLimit() {
+        return kTractionLimit;
+    }
+
+    /**
+     * @return Limited x command, fraction of max speed.
+     */
+    public double getX() {
+        return vx / kMaxSpeed;
+    }
+
+    /**
+     * @return Limited y command, fraction of max speed.
+     */
+    public double getY() {
+        return vy / kMaxSpeed;
+    }
+
+    /**
+     * @return Limited x velocity, meters per second.
+     */
+    public double getVx() {
+        return vx;
+    }
+
+    /**
+     * @return Limited y velocity, meters per second.
+     */
+    public double getVy() {
+        return vy;
+    }
+
+    /**
+     * Sets the commanded velocity, for starting a simulation from a known state.
+     * @param vx X velocity, meters per second.
+     * @param vy Y velocity, meters per second.
+     */
+    public void reset(double vx, double vy) {
+        this.vx = vx;
+        this.vy = vy;
+    }
+}
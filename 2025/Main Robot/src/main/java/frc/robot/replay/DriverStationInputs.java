@@ -0,0 +1,102 @@
+package frc.robot.replay;
+
+import java.nio.ByteBuffer;
+
+import edu.wpi.first.hal.AllianceStationID;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+
+/**
+ * Driver station state and the Xbox controllers, recorded at the start of every frame. The
+ * operator boards go through OperatorBoardIO instead. On replay these are pushed back through
+ * DriverStationSim, so the controllers and mode checks read them the normal way.
+ */
+public class DriverStationInputs implements LoggableInputs {
+    // Driver and operator Xbox controllers
+    private static final int[] kPorts = {0, 3};
+    private static final int kAxes = 6;
+    private static final int kControllerBytes = 4 + 2 + kAxes * 4;
+
+    public boolean enabled = false;
+    public boolean autonomous = false;
+    public boolean test = false;
+    public int allianceStation = AllianceStationID.Unknown.ordinal();
+    public final int[] buttons = new int[kPorts.length];
+    public final short[] povs = new short[kPorts.length];
+    public final float[] axes = new float[kPorts.length * kAxes];
+
+    /**
+     * Copies the current driver station state in.
+     */
+    public void update() {
+        enabled = DriverStation.isEnabled();
+        autonomous = DriverStation.isAutonomous();
+        test = DriverStation.isTest();
+        allianceStation = DriverStation.getRawAllianceStation().ordinal();
+        for (int i = 0; i < kPorts.length; i++) {
+            buttons[i] = DriverStation.getStickButtons(kPorts[i]);
+            povs[i] = (short) DriverStation.getStickPOV(kPorts[i], 0);
+            for (int axis = 0; axis < kAxes; axis++) {
+                axes[i * kAxes + axis] = (float) DriverStation.getStickAxis(kPorts[i], axis);
+            }
+        }
+    }
+
+    /**
+     * Pushes the recorded state into the simulated driver station. Replay only.
+     */
+    public void apply() {
+        DriverStationSim.setEnabled(enabled);
+        DriverStationSim.setAutonomous(autonomous);
+        DriverStationSim.setTest(test);
+        DriverStationSim.setAllianceStationId(AllianceStationID.values()[allianceStation]);
+        for (int i = 0; i < kPorts.length; i++) {
+            DriverStationSim.setJoystickButtons(kPorts[i], buttons[i]);
+            DriverStationSim.setJoystickButtonCount(kPorts[i], 32);
+            DriverStationSim.setJoystickPOVCount(kPorts[i], 1);
+            DriverStationSim.setJoystickPOV(kPorts[i], 0, povs[i]);
+            DriverStationSim.setJoystickAxisCount(kPorts[i], kAxes);
+            for (int axis = 0; axis < kAxes; axis++) {
+                DriverStationSim.setJoystickAxis(kPorts[i], axis, axes[i * kAxes + axis]);
+            }
+        }
+        DriverStationSim.notifyNewData();
+    }
+
+    @Override
+    public int size() {
+        return 4 + kPorts.length * kControllerBytes;
+    }
+
+    @Override
+    public void toLog(ByteBuffer buffer, int offset) {
+        buffer.put(offset, (byte) (enabled ? 1 : 0));
+        buffer.put(offset + 1, (byte) (autonomous ? 1 : 0));
+        buffer.put(offset + 2, (byte) (test ? 1 : 0));
+        buffer.put(offset + 3, (byte) allianceStation);
+        for (int i = 0; i < kPorts.length; i++) {
+            int start = offset + 4 + i * kControllerBytes;
+            buffer.putInt(start, buttons[i]);
+            buffer.putShort(start + 4, povs[i]);
+            for (int axis = 0; axis < kAxes; axis++) {
+                buffer.putFloat(start + 6 + axis * 4, axes[i * kAxes + axis]);
+            }
+        }
+    }
+
+    @Override
+    public void fromLog(ByteBuffer buffer, int offset) {
+        enabled = buffer.get(offset) != 0;
+        autonomous = buffer.get(offset + 1) != 0;
+        test = buffer.get(offset + 2) != 0;
+        allianceStation = buffer.get(offset + 3);
+        for (int i = 0; i < kPorts.length; i++) {
+            int start = offset + 4 + i * kControllerBytes;
+            buttons[i] = buffer.getInt(start);
+            povs[i] = buffer.getShort(start + 4);
+            for (int axis = 0; axis < kAxes; axis++) {
+                axes[i * kAxes + axis] = buffer.getFloat(start + 6 + axis * 4);
+            }
+        }
+    }
+}
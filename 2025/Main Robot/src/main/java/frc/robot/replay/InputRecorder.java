@@ -0,0 +1,347 @@
+package frc.robot.replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+
+/**
+ * Records every subsystem's inputs once per loop into a compact binary log, or plays a log
+ * back in their place. Each loop is one fixed-size frame: an FPGA timestamp, the driver station
+ * state, then every registered input block at a fixed offset.
+ *
+ * <p>Subsystems register their inputs once at construction and call process() right after
+ * their IO fills them in. When recording that copies the inputs into the frame; when replaying
+ * the IO does nothing and process() overwrites the inputs with the recorded ones, so everything
+ * downstream runs exactly as it did on the field.
+ *
+ * <p>Frames are collected in a few preallocated buffers that a background thread writes to the
+ * log file, so the main loop never waits on the USB stick. If the writer falls so far behind
+ * that every buffer is full, frames are dropped and counted rather than blocking.
+ *
+ * <p>This subsystem has to be constructed right after the LoadShedder and before every subsystem
+ * with inputs, so its periodic() opens each frame before any of them reads its inputs.
+ */
+public class InputRecorder extends SubsystemBase {
+
+    public enum Mode {
+        /** Real hardware, recording. */
+        kReal,
+        /** Simulated hardware, recording. */
+        kSim,
+        /** Inputs come from a recorded log. */
+        kReplay
+    }
+
+    private static final int kMagic = 0x494E5054; // "INPT"
+    private static final int kFileVersion = 1;
+    private static final int kTimestampBytes = 8;
+    private static final int kOutputBufferBytes = 64 * 1024;
+    private static final int kFlushEveryFrames = 50;
+    private static final int kOutputBuffers = 4;
+
+    private static final ArrayList<Block> blocks = new ArrayList<>();
+    private static final DriverStationInputs driverStation = new DriverStationInputs();
+    private static final Block driverStationBlock;
+
+    private static Mode mode = RobotBase.isReal() ? Mode.kReal : Mode.kSim;
+    private static int frameSize = kTimestampBytes;
+    private static ByteBuffer frame = null;
+
+    // Recording. Buffers go main loop -> fullBuffers -> writer thread -> freeBuffers and back.
+    private static volatile FileChannel output = null;
+    private static ByteBuffer outputBuffer = null;
+    private static boolean recording = false;
+    private static int framesSinceFlush = 0;
+    private static long droppedFrames = 0;
+    private static final ArrayBlockingQueue<ByteBuffer> freeBuffers = new ArrayBlockingQueue<>(kOutputBuffers);
+    private static final ArrayBlockingQueue<ByteBuffer> fullBuffers = new ArrayBlockingQueue<>(kOutputBuffers);
+
+    // Replay
+    private static ByteBuffer replayLog = null;
+    private static int replayDataStart = 0;
+    private static int replayFrames = 0;
+    private static int replayIndex = -1;
+    private static final ArrayList<String> replayNames = new ArrayList<>();
+    private static final ArrayList<Integer> replayOffsets = new ArrayList<>();
+
+    static {
+        driverStationBlock = register("DriverStation", driverStation);
+    }
+
+    /**
+     * Switches to replaying the given log. Must be called before any subsystem is constructed.
+     * @param path Log written by an earlier run.
+     * @throws IOException If the log can't be read or isn't an input log.
+     */
+    public static void startReplay(String path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+            replayLog = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        if (replayLog.getInt(0) != kMagic || replayLog.getInt(4) != kFileVersion) {
+            throw new IOException(path + " isn't an input log this build can read");
+        }
+
+        int blockCount = replayLog.getInt(8);
+        int position = 12;
+        int offset = kTimestampBytes;
+        for (int i = 0; i < blockCount; i++) {
+            int nameLength = replayLog.getShort(position);
+            byte[] name = new byte[nameLength];
+            replayLog.get(position + 2, name);
+            int size = replayLog.getInt(position + 2 + nameLength);
+            position += 2 + nameLength + 4;
+
+            replayNames.add(new String(name, StandardCharsets.UTF_8));
+            replayOffsets.add(offset);
+            offset += size;
+        }
+        frameSize = replayLog.getInt(position);
+        replayDataStart = position + 4;
+        replayFrames = (replayLog.capacity() - replayDataStart) / frameSize;
+        mode = Mode.kReplay;
+
+        // Blocks registered before this point, like the driver station, find their place now
+        for (Block block : blocks) {
+            block.offset = replayOffset(block.name, block.inputs.size());
+        }
+    }
+
+    public static Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Adds a block of inputs to every frame. Call once per subsystem, from its constructor.
+     * @param name Unique name, used to match blocks up on replay.
+     * @param inputs Inputs to record or replay.
+     * @return Handle to process the inputs with every loop.
+     */
+    public static Block register(String name, LoggableInputs inputs) {
+        Block block = new Block(name, inputs);
+        if (mode == Mode.kReplay) {
+            block.offset = replayOffset(name, inputs.size());
+        } else if (recording) {
+            // The frame layout is fixed once the first frame is written
+            DataLogManager.log("InputRecorder: " + name + " registered after recording started, not recorded");
+        } else {
+            block.offset = frameSize;
+            frameSize += inputs.size();
+        }
+        blocks.add(block);
+        return block;
+    }
+
+    private static int replayOffset(String name, int size) {
+        int index = replayNames.indexOf(name);
+        if (index < 0) {
+            DataLogManager.log("InputRecorder: " + name + " isn't in the replay log, it will read nothing");
+            return -1;
+        }
+        return replayOffsets.get(index);
+    }
+
+    /**
+     * Gets the driver station state of the current frame.
+     * @return Driver station inputs.
+     */
+    public static DriverStationInputs getDriverStation() {
+        return driverStation;
+    }
+
+    /**
+     * Moves replay to the next recorded frame and loads its driver station state. Replay only.
+     * @return False once the log has run out.
+     */
+    public static boolean nextFrame() {
+        if (replayIndex + 1 >= replayFrames) {
+            return false;
+        }
+        replayIndex++;
+        frame = replayLog.slice(replayDataStart + replayIndex * frameSize, frameSize).order(ByteOrder.LITTLE_ENDIAN);
+        driverStationBlock.process();
+        return true;
+    }
+
+    /**
+     * @return FPGA time the current frame was recorded at, in microseconds.
+     */
+    public static long getFrameTimestamp() {
+        return frame == null ? 0 : frame.getLong(0);
+    }
+
+    public static int getReplayFrameCount() {
+        return replayFrames;
+    }
+
+    /**
+     * @return Frames dropped because the writer thread fell behind.
+     */
+    public static long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    @Override
+    public void periodic() {
+        if (mode == Mode.kReplay) {
+            // The replay runner moves through the frames itself
+            return;
+        }
+
+        if (!recording) {
+            startRecording();
+        } else if (output != null) {
+            writeFrame();
+        }
+
+        frame.putLong(0, RobotController.getFPGATime());
+        driverStation.update();
+        driverStationBlock.process();
+    }
+
+    private static void startRecording() {
+        recording = true;
+        frame = ByteBuffer.allocateDirect(frameSize).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < kOutputBuffers; i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(kOutputBufferBytes).order(ByteOrder.LITTLE_ENDIAN));
+        }
+        outputBuffer = freeBuffers.poll();
+
+        File file = new File(getLogDirectory(), "inputs_" + System.currentTimeMillis() + ".bin");
+
+        try {
+            output = new RandomAccessFile(file, "rw").getChannel();
+
+            // Header: magic, version, then each block's name and size, then the frame size
+            ByteBuffer header = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(kMagic).putInt(kFileVersion).putInt(blocks.size());
+            for (Block block : blocks) {
+                byte[] name = block.name.getBytes(StandardCharsets.UTF_8);
+                header.putShort((short) name.length).put(name).putInt(block.inputs.size());
+            }
+            header.putInt(frameSize);
+            header.flip();
+            output.write(header);
+            DataLogManager.log("InputRecorder: recording " + frameSize + " byte frames to " + file);
+
+            Thread writer = new Thread(InputRecorder::runWriter, "InputRecorder");
+            writer.setDaemon(true);
+            writer.start();
+        } catch (IOException e) {
+            DataLogManager.log("InputRecorder: couldn't open " + file + ", not recording: " + e.getMessage());
+            output = null;
+        }
+    }
+
+    /**
+     * Gets where recordings go: the USB stick on the robot, ./logs anywhere else.
+     * @return Existing log directory.
+     */
+    public static File getLogDirectory() {
+        File directory = new File("/U/logs");
+        if (!directory.isDirectory()) {
+            directory = new File(Filesystem.getOperatingDirectory(), "logs");
+        }
+        directory.mkdirs();
+        return directory;
+    }
+
+    private static void writeFrame() {
+        if (outputBuffer != null && outputBuffer.remaining() < frameSize) {
+            handOff();
+        }
+        if (outputBuffer == null) {
+            // Every buffer is still waiting to be written
+            outputBuffer = freeBuffers.poll();
+            if (outputBuffer == null) {
+                if (droppedFrames++ == 0) {
+                    DataLogManager.log("InputRecorder: writer fell behind, dropping frames");
+                }
+                return;
+            }
+        }
+        frame.clear();
+        outputBuffer.put(frame);
+
+        if (++framesSinceFlush >= kFlushEveryFrames) {
+            handOff();
+        }
+    }
+
+    /**
+     * Passes the current buffer to the writer thread and picks up an empty one, if there is one.
+     */
+    private static void handOff() {
+        framesSinceFlush = 0;
+        outputBuffer.flip();
+        // Never full, there are only kOutputBuffers buffers
+        fullBuffers.offer(outputBuffer);
+        outputBuffer = freeBuffers.poll();
+    }
+
+    private static void runWriter() {
+        while (true) {
+            ByteBuffer buffer;
+            try {
+                buffer = fullBuffers.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            FileChannel channel = output;
+            if (channel != null) {
+                try {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                } catch (IOException e) {
+                    DataLogManager.log("InputRecorder: write failed, recording stopped: " + e.getMessage());
+                    output = null;
+                }
+            }
+            buffer.clear();
+            freeBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * One subsystem's inputs and where they sit in the frame.
+     */
+    public static class Block {
+        private final String name;
+        private final LoggableInputs inputs;
+        private int offset = -1;
+
+        private Block(String name, LoggableInputs inputs) {
+            this.name = name;
+            this.inputs = inputs;
+        }
+
+        /**
+         * Records the inputs into this loop's frame, or replaces them with the recorded ones when
+         * replaying. Call right after the IO has updated the inputs.
+         */
+        public void process() {
+            if (offset < 0 || frame == null) {
+                return;
+            }
+            if (mode == Mode.kReplay) {
+                inputs.fromLog(frame, offset);
+            } else {
+                inputs.toLog(frame, offset);
+            }
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package frc.robot.replay;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A fixed-size block of inputs that the InputRecorder writes into every loop's frame, or fills
+ * back in from a recorded frame when replaying. Implementations only hold primitives and use
+ * absolute ByteBuffer access, so recording a loop doesn't allocate.
+ */
+public interface LoggableInputs {
+    /**
+     * @return Number of bytes this block takes up in a frame. Must never change.
+     */
+    int size();
+
+    /**
+     * Writes the inputs into a frame.
+     * @param buffer Frame buffer.
+     * @param offset Where this block starts in the buffer.
+     */
+    void toLog(ByteBuffer buffer, int offset);
+
+    /**
+     * Reads the inputs back out of a recorded frame.
+     * @param buffer Frame buffer.
+     * @param offset Where this block starts in the buffer.
+     */
+    void fromLog(ByteBuffer buffer, int offset);
+}
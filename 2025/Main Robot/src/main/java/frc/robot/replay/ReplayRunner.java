@@ -0,0 +1,101 @@
+package frc.robot.replay;
+
+import java.io.IOException;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.RobotContainer;
+import frc.robot.SimHarness;
+import frc.robot.vision.ReplayCamera;
+
+/**
+ * Re-runs a recorded match through the real RobotContainer and bindings on a workstation. The
+ * simulated clock is stepped by the recorded loop times instead of waiting on them, so a full
+ * match takes seconds. The outputs end up in the wpilog the run writes to ./logs, which can be
+ * diffed against the field log or an earlier replay to catch control loop changes.
+ *
+ * <p>The drivetrain's inputs aren't recorded, it runs on its own simulation during replay.
+ *
+ * <p>Camera results are recorded separately, since they arrive on their own schedule. Pass the
+ * matching vision log to play them back through the vision pipeline too.
+ *
+ * <p>Usage: ReplayRunner path/to/inputs_*.bin [path/to/vision_*.bin]
+ */
+public final class ReplayRunner {
+    private ReplayRunner() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ReplayRunner <input log> [vision log]");
+            System.exit(1);
+        }
+
+        SimHarness.start();
+        InputRecorder.startReplay(args[0]);
+        if (args.length > 1) {
+            ReplayCamera.setReplayLog(args[1]);
+        }
+
+        RobotContainer container = new RobotContainer();
+        CommandScheduler scheduler = CommandScheduler.getInstance();
+
+        Command autonomousCommand = null;
+        boolean wasEnabled = false;
+        boolean wasAutonomous = false;
+        long lastTimestamp = -1;
+        long firstTimestamp = -1;
+        long loops = 0;
+        long maxLoopNanos = 0;
+        long totalLoopNanos = 0;
+        long wallStart = System.nanoTime();
+
+        while (InputRecorder.nextFrame()) {
+            long timestamp = InputRecorder.getFrameTimestamp();
+            if (firstTimestamp < 0) {
+                firstTimestamp = timestamp;
+            }
+            SimHooks.stepTiming(lastTimestamp < 0 ? 0.02 : (timestamp - lastTimestamp) / 1e6);
+            lastTimestamp = timestamp;
+
+            DriverStationInputs driverStation = InputRecorder.getDriverStation();
+            driverStation.apply();
+            DriverStation.refreshData();
+
+            // The same mode handling Robot does
+            if (!container.allianceIsSet) {
+                container.getAllianceColor();
+            }
+            boolean enteringAutonomous = driverStation.enabled && driverStation.autonomous && !(wasEnabled && wasAutonomous);
+            boolean enteringTeleop = driverStation.enabled && !driverStation.autonomous && !(wasEnabled && !wasAutonomous);
+            if (enteringAutonomous) {
+                autonomousCommand = container.getAutonomousCommand();
+                if (autonomousCommand != null) {
+                    scheduler.schedule(autonomousCommand);
+                }
+            } else if (enteringTeleop && autonomousCommand != null) {
+                autonomousCommand.cancel();
+            }
+            wasEnabled = driverStation.enabled;
+            wasAutonomous = driverStation.autonomous;
+
+            long start = System.nanoTime();
+            scheduler.run();
+            long elapsed = System.nanoTime() - start;
+            totalLoopNanos += elapsed;
+            maxLoopNanos = Math.max(maxLoopNanos, elapsed);
+            loops++;
+        }
+
+        double wallSeconds = (System.nanoTime() - wallStart) / 1e9;
+        double matchSeconds = (lastTimestamp - firstTimestamp) / 1e6;
+        System.out.printf("Replayed %d loops (%.1f s of robot time) in %.2f s, %.0fx real time%n",
+            loops, matchSeconds, wallSeconds, matchSeconds / wallSeconds);
+        System.out.printf("Loop time: mean %.3f ms, max %.3f ms%n",
+            loops == 0 ? 0 : totalLoopNanos / 1e6 / loops, maxLoopNanos / 1e6);
+
+        // Vendor and notifier threads would keep the JVM alive
+        System.exit(0);
+    }
+}
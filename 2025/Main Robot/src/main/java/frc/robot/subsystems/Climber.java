@@ -1,56 +1,96 @@
 package frc.robot.subsystems;
 
 
-import com.revrobotics.spark.SparkMax;
-import com.revrobotics.spark.SparkBase.PersistMode;
-import com.revrobotics.spark.SparkBase.ResetMode;
-import com.revrobotics.spark.SparkLowLevel.MotorType;
-import com.revrobotics.spark.config.SparkMaxConfig;
-import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
-
-import edu.wpi.first.wpilibj.DutyCycleEncoder;
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
+import frc.robot.LoopProfiler;
+import frc.robot.replay.InputRecorder;
 
 public class Climber extends SubsystemBase{
-    private final SparkMax motorA = new SparkMax(Constants.RobotMap.kClimberMotorA, MotorType.kBrushless);
-    private final SparkMax motorB = new SparkMax(Constants.RobotMap.kClimberMotorB, MotorType.kBrushless);
+    private final ClimberIO io;
+    private final ClimberIO.ClimberInputs inputs = new ClimberIO.ClimberInputs();
+    private final InputRecorder.Block inputsBlock;
 
-    private final SparkMaxConfig normalConfig = new SparkMaxConfig();
-    private final SparkMaxConfig invertedConfig = new SparkMaxConfig();
+    private final StatusFrameManager statusFrames;
+    private final StatusFrameManager.Device[] motorFrames;
 
-    private final DutyCycleEncoder encoderA = new DutyCycleEncoder(Constants.RobotMap.kClimberEncoderA);
-    private final DutyCycleEncoder encoderB = new DutyCycleEncoder(Constants.RobotMap.kClimberEncoderB);
+    private final ClimberSyncController syncController;
+    private final ClimberSyncController.Status syncStatus = new ClimberSyncController.Status();
+    private int loggedAttempts = 0;
 
-    public Climber(){
-        
-        normalConfig
-            .smartCurrentLimit(40)  
-            .idleMode(IdleMode.kBrake)
-            .inverted(false);
+    // Onboard position control runs on the SparkMax's built-in encoder, which is seeded from the
+    // absolute encoders. Measure this ratio on the climber before relying on the profiled commands.
+    static final double kMotorRotationsPerEncoderRotation = 25.0;
+    // Soft limits sit this far past each end of travel, in absolute encoder rotations, so the
+    // bang-bang commands still stop on the absolute encoders and the limits are only a backstop
+    static final double kSoftLimitMargin = 0.02;
+    // Loops to keep the seeded motor positions while the SparkMax still reports its old position
+    private static final int kSeedSettleLoops = 3;
+    static final double kP = 0.1;
+    static final double kMaxVelocityRpm = 3000;
+    static final double kMaxAccelerationRpmPerSecond = 6000;
+    static final double kAllowedError = 0.25; // motor rotations
+    // How far ahead of the other claw, as a fraction of the move, one claw may get. Too small and
+    // MAXMotion never gets up to speed because its target is always just ahead.
+    private final double kSyncTolerance = 0.15;
 
-        invertedConfig
-            .smartCurrentLimit(40)
-            .idleMode(IdleMode.kBrake)
-            .inverted(true);
+    // Encoder snapshot, sampled once at the start of every loop in periodic()
+    private double positionA = 0;
+    private double positionB = 0;
+    private double motorPositionA = 0;
+    private double motorPositionB = 0;
 
-        motorA.configure(
-            normalConfig, 
-            ResetMode.kResetSafeParameters, 
-            PersistMode.kPersistParameters);
+    private int seedLoopsLeft = 0;
 
-        motorB.configure(
-            invertedConfig, 
-            ResetMode.kResetSafeParameters, 
-            PersistMode.kPersistParameters);
+    private final LoopProfiler.Section periodicSection = LoopProfiler.section("Climber.periodic");
+
+    private final TelemetryPublisher.DoubleChannel positionAChannel;
+    private final TelemetryPublisher.DoubleChannel positionBChannel;
+    private final TelemetryPublisher.DoubleChannel syncErrorChannel;
+    private final TelemetryPublisher.DoubleChannel climbTimeChannel;
+    private final TelemetryPublisher.DoubleChannel maxSyncErrorChannel;
+
+    public Climber(ClimberIO io, TelemetryPublisher telemetry, StatusFrameManager statusFrames){
+        this.io = io;
+        inputsBlock = InputRecorder.register("Climber", inputs);
+        positionAChannel = telemetry.addDouble("Encoder A Pos", TelemetryPublisher.Rate.kMatchCritical, 0.001);
+        positionBChannel = telemetry.addDouble("Encoder B Pos", TelemetryPublisher.Rate.kMatchCritical, 0.001);
+        syncErrorChannel = telemetry.addDouble("Climber/Sync Error (%)", TelemetryPublisher.Rate.kMatchCritical, 0.1);
+        climbTimeChannel = telemetry.addDouble("Climber/Last Climb Time (s)", TelemetryPublisher.Rate.kMatchCritical, 0.01);
+        maxSyncErrorChannel = telemetry.addDouble("Climber/Last Max Sync Error (%)", TelemetryPublisher.Rate.kMatchCritical, 0.1);
+        SmartDashboard.putData(this);
+
+        sampleInputs();
+        seedMotorEncoders();
+
+        // Climber frames stay slow until a climb command runs
+        this.statusFrames = statusFrames;
+        motorFrames = io.registerStatusFrames(statusFrames);
+
+        syncController = new ClimberSyncController(io);
+    }
+
+    /**
+     * Sets the SparkMax encoders to match the absolute encoders. Only valid while the claws
+     * aren't moving.
+     */
+    private void seedMotorEncoders() {
+        io.setMotorPositions(
+            positionA * kMotorRotationsPerEncoderRotation,
+            positionB * kMotorRotationsPerEncoderRotation);
+        // getPosition() right after setPosition() returns the last status frame, from before
+        // the seed, so use the seeded values until the controller has reported them
+        motorPositionA = positionA * kMotorRotationsPerEncoderRotation;
+        motorPositionB = positionB * kMotorRotationsPerEncoderRotation;
+        seedLoopsLeft = kSeedSettleLoops;
     }
 
     public Command stop(){
         return this.runOnce(() -> {
-            motorA.set(0);
-            motorB.set(0);
+            io.setSpeeds(0, 0);
         }).withName("Stop");
     }
 
@@ -58,41 +98,172 @@ public class Climber extends SubsystemBase{
     // Well beed a method to open the claws as well
 
     public Command clawClose(){
-        return this.run(() -> {
-            if (encoderA.get() <= Constants.ClimberConstants.kMaxMotorA) {
-                motorA.set(Constants.ClimberConstants.kSpeed);
-            } else {
-                motorA.set(0);
-            }
-
-            if (encoderB.get() <= Constants.ClimberConstants.kMaxMotorB) {
-                motorB.set(Constants.ClimberConstants.kSpeed);
-            } else {
-                motorB.set(0);
-            }
-        }).withName("Close");
+        return LoopProfiler.profile(statusFrames.activeWhile(this.run(() -> {
+            io.setSpeeds(
+                getPositionA() <= Constants.ClimberConstants.kMaxMotorA ? Constants.ClimberConstants.kSpeed : 0,
+                getPositionB() <= Constants.ClimberConstants.kMaxMotorB ? Constants.ClimberConstants.kSpeed : 0);
+        }), motorFrames).withName("Close"));
     }
 
     public Command clawOpen(){
-        return this.run(() -> {
-            if (encoderA.get() >= Constants.ClimberConstants.kMinMoterA) {
-                motorA.set(-Constants.ClimberConstants.kSpeed);
-            } else {
-                motorA.set(0);
+        return LoopProfiler.profile(statusFrames.activeWhile(this.run(() -> {
+            io.setSpeeds(
+                getPositionA() >= Constants.ClimberConstants.kMinMoterA ? -Constants.ClimberConstants.kSpeed : 0,
+                getPositionB() >= Constants.ClimberConstants.kMinMotorB ? -Constants.ClimberConstants.kSpeed : 0);
+        }), motorFrames).withName("Open"));
+    }
+
+    public Command clawCloseProfiled(){
+        return profiledMove(Constants.ClimberConstants.kMaxMotorA, Constants.ClimberConstants.kMaxMotorB, "Close (Onboard)");
+    }
+
+    public Command clawOpenProfiled(){
+        return profiledMove(Constants.ClimberConstants.kMinMoterA, Constants.ClimberConstants.kMinMotorB, "Open (Onboard)");
+    }
+
+    public Command clawCloseSynced(){
+        return syncedMove(Constants.ClimberConstants.kMaxMotorA, Constants.ClimberConstants.kMaxMotorB, "Close (Synced)");
+    }
+
+    public Command clawOpenSynced(){
+        return syncedMove(Constants.ClimberConstants.kMinMoterA, Constants.ClimberConstants.kMinMotorB, "Open (Synced)");
+    }
+
+    /**
+     * Moves both claws in lockstep with the ClimberSyncController, which runs the profile and
+     * both motors on its own thread. The main loop only starts it, watches for it to finish,
+     * and stops it if the command is interrupted.
+     * @param targetA Claw A target in absolute encoder units.
+     * @param targetB Claw B target in absolute encoder units.
+     * @param name Command name.
+     * @return Command that ends once both claws are at their targets or the move timed out.
+     */
+    private Command syncedMove(double targetA, double targetB, String name) {
+        return LoopProfiler.profile(statusFrames.activeWhile(this.startEnd(
+            () -> syncController.start(targetA, targetB),
+            syncController::stop
+        ).until(() -> {
+            // Fresh status, periodic's copy is from before this command started
+            syncController.getStatus(syncStatus);
+            return !syncStatus.active;
+        }), motorFrames).withName(name));
+    }
+
+    /**
+     * Moves both claws with MAXMotion on the motor controllers. The main loop only sends targets:
+     * each claw's target is held back so it never gets more than kSyncTolerance of the move
+     * ahead of the other claw, which keeps the two sides moving together.
+     * @param targetA Claw A target in absolute encoder units.
+     * @param targetB Claw B target in absolute encoder units.
+     * @param name Command name.
+     * @return Command that ends once both claws are at their targets.
+     */
+    private Command profiledMove(double targetA, double targetB, String name) {
+        double goalA = targetA * kMotorRotationsPerEncoderRotation;
+        double goalB = targetB * kMotorRotationsPerEncoderRotation;
+        double[] start = new double[2];
+        double[] sent = new double[2];
+
+        return LoopProfiler.profile(statusFrames.activeWhile(this.startRun(() -> {
+            seedMotorEncoders();
+            start[0] = motorPositionA;
+            start[1] = motorPositionB;
+            sent[0] = Double.NaN;
+            sent[1] = Double.NaN;
+        }, () -> {
+            double progressA = progress(start[0], goalA, motorPositionA);
+            double progressB = progress(start[1], goalB, motorPositionB);
+
+            double commandA = start[0] + (goalA - start[0]) * Math.min(1, progressB + kSyncTolerance);
+            double commandB = start[1] + (goalB - start[1]) * Math.min(1, progressA + kSyncTolerance);
+
+            // Only send a new reference when it moved, to keep CAN traffic down
+            if (!(Math.abs(commandA - sent[0]) < 1e-3)) {
+                io.setReferenceA(commandA);
+                sent[0] = commandA;
             }
-            if (encoderB.get() >= Constants.ClimberConstants.kMinMotorB) {
-                motorB.set(-Constants.ClimberConstants.kSpeed);
-            } else {
-                motorB.set(0);
+            if (!(Math.abs(commandB - sent[1]) < 1e-3)) {
+                io.setReferenceB(commandB);
+                sent[1] = commandB;
             }
-        }).withName("Open");
+        }).until(() -> Math.abs(goalA - motorPositionA) < kAllowedError && Math.abs(goalB - motorPositionB) < kAllowedError)
+        .finallyDo(() -> {
+            io.setSpeeds(0, 0);
+        }), motorFrames).withName(name));
+    }
+
+    private double progress(double start, double goal, double position) {
+        if (Math.abs(goal - start) < kAllowedError) {
+            return 1;
+        }
+        return Math.max(0, Math.min(1, (position - start) / (goal - start)));
+    }
+
+    /**
+     * Gets claw A's encoder position sampled at the start of this loop.
+     * @return Absolute encoder position.
+     */
+    public double getPositionA() {
+        return positionA;
+    }
+
+    /**
+     * Gets claw B's encoder position sampled at the start of this loop.
+     * @return Absolute encoder position.
+     */
+    public double getPositionB() {
+        return positionB;
+    }
+
+    /**
+     * Gets the sync controller's status as of the start of this loop.
+     * @return Status, updated in place every loop.
+     */
+    public ClimberSyncController.Status getSyncStatus() {
+        return syncStatus;
+    }
+
+    /**
+     * Reads the encoders once for the rest of the loop. When replaying, the recorded inputs
+     * replace whatever the IO reported.
+     */
+    private void sampleInputs() {
+        io.updateInputs(inputs);
+        inputsBlock.process();
+
+        positionA = inputs.positionA;
+        positionB = inputs.positionB;
+        if (seedLoopsLeft > 0
+                && (Math.abs(inputs.motorPositionA - motorPositionA) > kAllowedError
+                    || Math.abs(inputs.motorPositionB - motorPositionB) > kAllowedError)) {
+            seedLoopsLeft--;
+            return;
+        }
+        seedLoopsLeft = 0;
+        motorPositionA = inputs.motorPositionA;
+        motorPositionB = inputs.motorPositionB;
     }
 
     public void periodic(){
-        SmartDashboard.putNumber("Encoder A Pos", encoderA.get());
-        SmartDashboard.putNumber("Encoder B Pos", encoderB.get());
-        SmartDashboard.putData(this);
+        long start = System.nanoTime();
+
+        sampleInputs();
+
+        positionAChannel.set(positionA);
+        positionBChannel.set(positionB);
+
+        syncController.getStatus(syncStatus);
+        syncErrorChannel.set(syncStatus.syncError * 100);
+        if (syncStatus.attempts != loggedAttempts) {
+            loggedAttempts = syncStatus.attempts;
+            climbTimeChannel.set(syncStatus.lastClimbTime);
+            maxSyncErrorChannel.set(syncStatus.lastMaxSyncError * 100);
+            DataLogManager.log(String.format("Climber: synced move %d %s in %.2f s, sides up to %.1f%% apart",
+                loggedAttempts, syncStatus.lastCompleted ? "finished" : "stopped", syncStatus.lastClimbTime,
+                syncStatus.lastMaxSyncError * 100));
+        }
 
+        periodicSection.record(start);
     }
 
     
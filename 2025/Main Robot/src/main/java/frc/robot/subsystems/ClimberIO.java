@@ -0,0 +1,76 @@
+package frc.robot.subsystems;
+
+import java.nio.ByteBuffer;
+
+import frc.robot.replay.LoggableInputs;
+
+/**
+ * Hardware layer for the Climber. Positions are in absolute encoder units for the claws and in
+ * motor rotations for the SparkMax encoders. The defaults do nothing, which is what replay uses.
+ */
+public interface ClimberIO {
+
+    public static class ClimberInputs implements LoggableInputs {
+        public double positionA = 0;
+        public double positionB = 0;
+        public double motorPositionA = 0;
+        public double motorPositionB = 0;
+
+        @Override
+        public int size() {
+            return 4 * 8;
+        }
+
+        @Override
+        public void toLog(ByteBuffer buffer, int offset) {
+            buffer.putDouble(offset, positionA);
+            buffer.putDouble(offset + 8, positionB);
+            buffer.putDouble(offset + 16, motorPositionA);
+            buffer.putDouble(offset + 24, motorPositionB);
+        }
+
+        @Override
+        public void fromLog(ByteBuffer buffer, int offset) {
+            positionA = buffer.getDouble(offset);
+            positionB = buffer.getDouble(offset + 8);
+            motorPositionA = buffer.getDouble(offset + 16);
+            motorPositionB = buffer.getDouble(offset + 24);
+        }
+    }
+
+    /**
+     * Copies the latest encoder values into inputs.
+     * @param inputs Inputs to fill.
+     */
+    default void updateInputs(ClimberInputs inputs) {}
+
+    default void setSpeeds(double speedA, double speedB) {}
+
+    /**
+     * Sends a MAXMotion position target to claw A's controller.
+     * @param motorRotations Target in motor rotations.
+     */
+    default void setReferenceA(double motorRotations) {}
+
+    /**
+     * Sends a MAXMotion position target to claw B's controller.
+     * @param motorRotations Target in motor rotations.
+     */
+    default void setReferenceB(double motorRotations) {}
+
+    /**
+     * Sets the SparkMax encoders, used to seed them from the absolute encoders.
+     * @param motorRotationsA Claw A motor position.
+     * @param motorRotationsB Claw B motor position.
+     */
+    default void setMotorPositions(double motorRotationsA, double motorRotationsB) {}
+
+    /**
+     * Puts the motor controllers under the status frame manager.
+     * @param statusFrames Status frame manager.
+     * @return Handles for the controllers, empty if there aren't any.
+     */
+    default StatusFrameManager.Device[] registerStatusFrames(StatusFrameManager statusFrames) {
+        return new StatusFrameManager.Device[0];
+    }
+}
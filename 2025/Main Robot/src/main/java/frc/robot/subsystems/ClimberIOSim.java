@@ -0,0 +1,64 @@
+package frc.robot.subsystems;
+
+import com.revrobotics.sim.SparkMaxSim;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import edu.wpi.first.wpilibj.simulation.DutyCycleEncoderSim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+import frc.robot.Constants;
+
+/**
+ * Simulated Climber. The real SparkMax configuration, soft limits and MAXMotion run in REV's
+ * simulation against a DCMotorSim per claw, and the absolute encoders follow the claws. The two
+ * claws get slightly different inertia so the sync logic has something to correct. Physics
+ * steps on its own thread at 1 kHz, so the 200 Hz sync controller sees the claws move between
+ * main loops. kClawMoiA and kClawMoiB are guesses: tune them until MechanismSimulator's
+ * bang-bang close time matches the climb time logged on the robot.
+ */
+public class ClimberIOSim extends ClimberIOSpark {
+    private static final DCMotor kMotor = DCMotor.getNEO(1);
+    private static final double kClawMoiA = 0.05; // kg m^2 at the claw
+    private static final double kClawMoiB = 0.06;
+    private static final double kPhysicsPeriod = 0.001;
+
+    private final SparkMaxSim motorSimA = new SparkMaxSim(motorA, kMotor);
+    private final SparkMaxSim motorSimB = new SparkMaxSim(motorB, kMotor);
+    private final DutyCycleEncoderSim encoderSimA = new DutyCycleEncoderSim(encoderA);
+    private final DutyCycleEncoderSim encoderSimB = new DutyCycleEncoderSim(encoderB);
+    private final DCMotorSim clawA = createClaw(kClawMoiA);
+    private final DCMotorSim clawB = createClaw(kClawMoiB);
+    private final Notifier physics;
+
+    public ClimberIOSim() {
+        // Start with both claws open
+        clawA.setAngle(Constants.ClimberConstants.kMinMoterA * 2 * Math.PI);
+        clawB.setAngle(Constants.ClimberConstants.kMinMotorB * 2 * Math.PI);
+        encoderSimA.set(Constants.ClimberConstants.kMinMoterA);
+        encoderSimB.set(Constants.ClimberConstants.kMinMotorB);
+
+        physics = new Notifier(this::step);
+        physics.setName("ClimberSim");
+        physics.startPeriodic(kPhysicsPeriod);
+    }
+
+    private static DCMotorSim createClaw(double moi) {
+        return new DCMotorSim(LinearSystemId.createDCMotorSystem(kMotor, moi, Climber.kMotorRotationsPerEncoderRotation), kMotor);
+    }
+
+    private synchronized void step() {
+        double batteryVoltage = RoboRioSim.getVInVoltage();
+        step(motorSimA, clawA, encoderSimA, batteryVoltage, kPhysicsPeriod);
+        step(motorSimB, clawB, encoderSimB, batteryVoltage, kPhysicsPeriod);
+    }
+
+    private void step(SparkMaxSim motorSim, DCMotorSim claw, DutyCycleEncoderSim encoderSim, double batteryVoltage, double dtSeconds) {
+        claw.setInputVoltage(motorSim.getAppliedOutput() * batteryVoltage);
+        claw.update(dtSeconds);
+        // iterate() runs the controller's onboard closed loop and soft limits for the next step
+        motorSim.iterate(claw.getAngularVelocityRPM() * Climber.kMotorRotationsPerEncoderRotation, batteryVoltage, dtSeconds);
+        encoderSim.set(claw.getAngularPositionRotations());
+    }
+}
@@ -0,0 +1,113 @@
+package frc.robot.subsystems;
+
+import com.revrobotics.spark.SparkClosedLoopController;
+import com.revrobotics.spark.SparkMax;
+import com.revrobotics.spark.SparkBase.ControlType;
+import com.revrobotics.spark.SparkBase.PersistMode;
+import com.revrobotics.spark.SparkBase.ResetMode;
+import com.revrobotics.spark.SparkLowLevel.MotorType;
+import com.revrobotics.spark.config.ClosedLoopConfig.FeedbackSensor;
+import com.revrobotics.spark.config.SparkMaxConfig;
+import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
+
+import edu.wpi.first.wpilibj.DutyCycleEncoder;
+import frc.robot.Constants;
+
+/**
+ * Climber hardware: a SparkMax and an absolute encoder per claw. Soft limits and MAXMotion run
+ * on the controllers. The limits are in motor rotations, which match the claws because the
+ * Climber seeds the SparkMax encoders from the absolute encoders when it's constructed.
+ */
+public class ClimberIOSpark implements ClimberIO {
+    protected final SparkMax motorA = new SparkMax(Constants.RobotMap.kClimberMotorA, MotorType.kBrushless);
+    protected final SparkMax motorB = new SparkMax(Constants.RobotMap.kClimberMotorB, MotorType.kBrushless);
+
+    private final SparkMaxConfig normalConfig = new SparkMaxConfig();
+    private final SparkMaxConfig invertedConfig = new SparkMaxConfig();
+
+    protected final DutyCycleEncoder encoderA = new DutyCycleEncoder(Constants.RobotMap.kClimberEncoderA);
+    protected final DutyCycleEncoder encoderB = new DutyCycleEncoder(Constants.RobotMap.kClimberEncoderB);
+
+    private final SparkClosedLoopController controllerA = motorA.getClosedLoopController();
+    private final SparkClosedLoopController controllerB = motorB.getClosedLoopController();
+
+    public ClimberIOSpark() {
+        normalConfig
+            .smartCurrentLimit(40)  
+            .idleMode(IdleMode.kBrake)
+            .inverted(false);
+
+        invertedConfig
+            .smartCurrentLimit(40)
+            .idleMode(IdleMode.kBrake)
+            .inverted(true);
+
+        // motorA uses normalConfig and motorB uses invertedConfig, so each carries its own claw's limits
+        configureOnboardControl(normalConfig, Constants.ClimberConstants.kMinMoterA, Constants.ClimberConstants.kMaxMotorA);
+        configureOnboardControl(invertedConfig, Constants.ClimberConstants.kMinMotorB, Constants.ClimberConstants.kMaxMotorB);
+
+        motorA.configure(
+            normalConfig, 
+            ResetMode.kResetSafeParameters, 
+            PersistMode.kPersistParameters);
+
+        motorB.configure(
+            invertedConfig, 
+            ResetMode.kResetSafeParameters, 
+            PersistMode.kPersistParameters);
+    }
+
+    private void configureOnboardControl(SparkMaxConfig config, double minPosition, double maxPosition) {
+        config.softLimit
+            .reverseSoftLimit((minPosition - Climber.kSoftLimitMargin) * Climber.kMotorRotationsPerEncoderRotation)
+            .reverseSoftLimitEnabled(true)
+            .forwardSoftLimit((maxPosition + Climber.kSoftLimitMargin) * Climber.kMotorRotationsPerEncoderRotation)
+            .forwardSoftLimitEnabled(true);
+
+        config.closedLoop
+            .feedbackSensor(FeedbackSensor.kPrimaryEncoder)
+            .p(Climber.kP)
+            .maxMotion
+                .maxVelocity(Climber.kMaxVelocityRpm)
+                .maxAcceleration(Climber.kMaxAccelerationRpmPerSecond)
+                .allowedClosedLoopError(Climber.kAllowedError);
+    }
+
+    @Override
+    public void updateInputs(ClimberInputs inputs) {
+        inputs.positionA = encoderA.get();
+        inputs.positionB = encoderB.get();
+        inputs.motorPositionA = motorA.getEncoder().getPosition();
+        inputs.motorPositionB = motorB.getEncoder().getPosition();
+    }
+
+    @Override
+    public void setSpeeds(double speedA, double speedB) {
+        motorA.set(speedA);
+        motorB.set(speedB);
+    }
+
+    @Override
+    public void setReferenceA(double motorRotations) {
+        controllerA.setReference(motorRotations, ControlType.kMAXMotionPositionControl);
+    }
+
+    @Override
+    public void setReferenceB(double motorRotations) {
+        controllerB.setReference(motorRotations, ControlType.kMAXMotionPositionControl);
+    }
+
+    @Override
+    public void setMotorPositions(double motorRotationsA, double motorRotationsB) {
+        motorA.getEncoder().setPosition(motorRotationsA);
+        motorB.getEncoder().setPosition(motorRotationsB);
+    }
+
+    @Override
+    public StatusFrameManager.Device[] registerStatusFrames(StatusFrameManager statusFrames) {
+        return new StatusFrameManager.Device[] {
+            statusFrames.register(motorA),
+            statusFrames.register(motorB)
+        };
+    }
+}
@@ -0,0 +1,273 @@
+package frc.robot.subsystems;
+
+import java.lang.invoke.VarHandle;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Moves both claws together on its own 200 Hz thread. One trapezoid profile runs over the
+ * fraction of the move done, so both claws get setpoints for the same fraction even though
+ * their ranges differ. Each side's output is velocity feedforward plus feedback on its own
+ * position, plus a cross-coupling term on the difference between the two sides' progress that
+ * pushes the side behind and holds back the side ahead. If the sides get too far apart anyway,
+ * the profile pauses until they're back together.
+ *
+ * <p>Positions are the absolute encoders, read on this thread. Status goes to the main loop
+ * through a sequence lock, so reading it never blocks or allocates. Each attempt's time and
+ * largest difference in progress are kept for the Climber to log. kP and kCoupling haven't been
+ * tuned on the robot: raise kCoupling until "Climber/Last Max Sync Error (%)" stops improving,
+ * then kP until the claws start to overshoot their goals.
+ */
+public class ClimberSyncController {
+    private static final double kPeriod = 0.005; // 200 Hz
+    // Claw speed at full output, absolute encoder rotations per second
+    private static final double kFreeSpeed = DCMotor.getNEO(1).freeSpeedRadPerSec / (2 * Math.PI) / Climber.kMotorRotationsPerEncoderRotation;
+    // Profile limits for the longer of the two moves, absolute encoder rotations
+    private static final double kMaxVelocity = 2.0;
+    private static final double kMaxAcceleration = 10.0;
+    // Output per rotation of position error, and per rotation the side is ahead of the other
+    private static final double kP = 10.0;
+    private static final double kCoupling = 8.0;
+    // Difference in progress, as a fraction of the move, past which the profile waits
+    private static final double kSyncHold = 0.05;
+    private static final double kTolerance = Climber.kAllowedError / Climber.kMotorRotationsPerEncoderRotation;
+    private static final double kTimeout = 3.0;
+
+    private final ClimberIO io;
+    private final ClimberIO.ClimberInputs inputs = new ClimberIO.ClimberInputs();
+    private final Notifier notifier;
+
+    // Only touched with this object's lock held
+    private boolean active = false;
+    private double startA = 0;
+    private double startB = 0;
+    private double goalA = 0;
+    private double goalB = 0;
+    private double startTime = 0;
+    private double lastTime = 0;
+    private double profileTime = 0;
+    private double accelTime = 0;
+    private double cruiseTime = 0;
+    private double peakVelocity = 0;
+    private double maxSyncError = 0;
+
+    // Status, written under the sequence lock
+    private volatile int sequence = 0;
+    private boolean statusActive = false;
+    private double positionA = 0;
+    private double positionB = 0;
+    private double setpointA = 0;
+    private double setpointB = 0;
+    private double outputA = 0;
+    private double outputB = 0;
+    private double syncError = 0;
+    private int attempts = 0;
+    private boolean lastCompleted = false;
+    private double lastClimbTime = 0;
+    private double lastMaxSyncError = 0;
+
+    /**
+     * Status of the controller, filled in by getStatus().
+     */
+    public static class Status {
+        /** True while a move is running. */
+        public boolean active;
+        public double positionA;
+        public double positionB;
+        public double setpointA;
+        public double setpointB;
+        public double outputA;
+        public double outputB;
+        /** Claw A's progress minus claw B's, as a fraction of the move. */
+        public double syncError;
+        /** Number of moves finished, stopped or timed out so far. */
+        public int attempts;
+        /** True if the last move reached its goal, false if it was stopped or timed out. */
+        public boolean lastCompleted;
+        public double lastClimbTime;
+        /** Largest difference in progress during the last move, as a fraction of the move. */
+        public double lastMaxSyncError;
+    }
+
+    public ClimberSyncController(ClimberIO io) {
+        this.io = io;
+        notifier = new Notifier(this::run);
+        notifier.setName("ClimberSync");
+        notifier.startPeriodic(kPeriod);
+    }
+
+    /**
+     * Starts a synchronized move from wherever the claws are now.
+     * @param targetA Claw A goal in absolute encoder units.
+     * @param targetB Claw B goal in absolute encoder units.
+     */
+    public synchronized void start(double targetA, double targetB) {
+        io.updateInputs(inputs);
+        startA = inputs.positionA;
+        startB = inputs.positionB;
+        goalA = targetA;
+        goalB = targetB;
+
+        // Trapezoid over the fraction of the move, scaled so the longer side sees the limits
+        double range = Math.max(Math.max(Math.abs(goalA - startA), Math.abs(goalB - startB)), kTolerance);
+        double velocity = kMaxVelocity / range;
+        double acceleration = kMaxAcceleration / range;
+        peakVelocity = Math.min(velocity, Math.sqrt(acceleration));
+        accelTime = peakVelocity / acceleration;
+        cruiseTime = (1 - peakVelocity * accelTime) / peakVelocity;
+
+        startTime = Timer.getFPGATimestamp();
+        lastTime = startTime;
+        profileTime = 0;
+        maxSyncError = 0;
+        active = true;
+        publish(startA, startB, 0, 0, 0);
+    }
+
+    /**
+     * Stops the move and the motors. Counts as an attempt if a move was running.
+     */
+    public synchronized void stop() {
+        if (active) {
+            finish(false);
+        }
+    }
+
+    /**
+     * Copies the latest status. Never blocks, safe to call from any thread.
+     * @param status Status to fill in.
+     */
+    public void getStatus(Status status) {
+        while (true) {
+            int before = sequence;
+            if ((before & 1) == 0) {
+                status.active = statusActive;
+                status.positionA = positionA;
+                status.positionB = positionB;
+                status.setpointA = setpointA;
+                status.setpointB = setpointB;
+                status.outputA = outputA;
+                status.outputB = outputB;
+                status.syncError = syncError;
+                status.attempts = attempts;
+                status.lastCompleted = lastCompleted;
+                status.lastClimbTime = lastClimbTime;
+                status.lastMaxSyncError = lastMaxSyncError;
+                // Keep the reads above from moving past the second sequence check
+                VarHandle.acquireFence();
+                if (sequence == before) {
+                    return;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private synchronized void run() {
+        if (!active) {
+            return;
+        }
+        io.updateInputs(inputs);
+        double now = Timer.getFPGATimestamp();
+        double dt = now - lastTime;
+        lastTime = now;
+
+        double progressA = progress(startA, goalA, inputs.positionA);
+        double progressB = progress(startB, goalB, inputs.positionB);
+        double error = progressA - progressB;
+        maxSyncError = Math.max(maxSyncError, Math.abs(error));
+
+        // Hold the profile while the sides are too far apart, so the one behind can catch up
+        boolean hold = Math.abs(error) > kSyncHold;
+        if (!hold) {
+            profileTime += dt;
+        }
+        double fraction = profilePosition(profileTime);
+        double fractionVelocity = hold ? 0 : profileVelocity(profileTime);
+
+        double rangeA = goalA - startA;
+        double rangeB = goalB - startB;
+        // Signed ranges, so the coupling always points back along the move for the side ahead
+        double commandA = output(startA + rangeA * fraction, rangeA * fractionVelocity, inputs.positionA, -error * rangeA);
+        double commandB = output(startB + rangeB * fraction, rangeB * fractionVelocity, inputs.positionB, error * rangeB);
+
+        boolean done = fraction >= 1
+            && Math.abs(goalA - inputs.positionA) < kTolerance
+            && Math.abs(goalB - inputs.positionB) < kTolerance;
+        if (done || now - startTime > kTimeout) {
+            finish(done);
+            return;
+        }
+
+        io.setSpeeds(commandA, commandB);
+        publish(startA + rangeA * fraction, startB + rangeB * fraction, commandA, commandB, error);
+    }
+
+    private static double output(double setpoint, double velocity, double position, double syncOffset) {
+        double output = velocity / kFreeSpeed + kP * (setpoint - position) + kCoupling * syncOffset;
+        return Math.max(-1, Math.min(1, output));
+    }
+
+    private static double progress(double start, double goal, double position) {
+        if (Math.abs(goal - start) < kTolerance) {
+            return 1;
+        }
+        return Math.max(0, Math.min(1, (position - start) / (goal - start)));
+    }
+
+    // Worked out here instead of with TrapezoidProfile, which allocates a State every call
+    private double profilePosition(double t) {
+        if (t < accelTime) {
+            return 0.5 * peakVelocity / accelTime * t * t;
+        }
+        double accelDistance = 0.5 * peakVelocity * accelTime;
+        if (t < accelTime + cruiseTime) {
+            return accelDistance + peakVelocity * (t - accelTime);
+        }
+        double remaining = Math.max(0, 2 * accelTime + cruiseTime - t);
+        return Math.min(1, 1 - 0.5 * peakVelocity / accelTime * remaining * remaining);
+    }
+
+    private double profileVelocity(double t) {
+        if (t < accelTime) {
+            return peakVelocity * t / accelTime;
+        }
+        if (t < accelTime + cruiseTime) {
+            return peakVelocity;
+        }
+        return peakVelocity * Math.max(0, 2 * accelTime + cruiseTime - t) / accelTime;
+    }
+
+    private void finish(boolean completed) {
+        io.setSpeeds(0, 0);
+        active = false;
+
+        sequence++;
+        VarHandle.releaseFence();
+        statusActive = false;
+        attempts++;
+        lastCompleted = completed;
+        lastClimbTime = Timer.getFPGATimestamp() - startTime;
+        lastMaxSyncError = maxSyncError;
+        outputA = 0;
+        outputB = 0;
+        sequence++;
+    }
+
+    private void publish(double setpointA, double setpointB, double outputA, double outputB, double syncError) {
+        sequence++;
+        // Keep the writes below from moving ahead of the odd sequence number
+        VarHandle.releaseFence();
+        statusActive = true;
+        positionA = inputs.positionA;
+        positionB = inputs.positionB;
+        this.setpointA = setpointA;
+        this.setpointB = setpointB;
+        this.outputA = outputA;
+        this.outputB = outputB;
+        this.syncError = syncError;
+        sequence++;
+    }
+}
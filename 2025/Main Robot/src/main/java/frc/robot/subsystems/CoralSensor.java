@@ -0,0 +1,201 @@
+package frc.robot.subsystems;
+
+import au.grapplerobotics.ConfigurationFailedException;
+import au.grapplerobotics.LaserCan;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Samples the ejector's LaserCan on its own thread, well above the main loop rate. Readings go
+ * through a median filter over a small ring buffer, and the filtered state is published through
+ * a single volatile so the main loop never waits on CAN. While armed, a detection stops the
+ * rollers straight from this thread instead of waiting for the next main loop.
+ */
+public class CoralSensor {
+
+    /**
+     * Something that measures the distance to the coral, the LaserCan on the robot.
+     */
+    public interface Ranger {
+        /**
+         * @return Distance in millimeters, kInvalid for a bad measurement or kDisconnected if
+         *     the sensor didn't answer.
+         */
+        int measure();
+    }
+
+    public static final int kInvalid = -1;
+    public static final int kDisconnected = -2;
+
+    private static final double kPeriod = 0.004; // 250 Hz
+    private static final int kWindow = 3;
+    private static final int kDetectDistanceMm = 51; // 2 inches
+    // How long to keep watching the coral after a stop to measure how far it slid
+    private static final long kStopWatchMicros = 150_000;
+
+    private static final long kConnectedBit = 1L << 32;
+    private static final long kCoralBit = 1L << 33;
+
+    private final Ranger ranger;
+    private final Runnable stopAction;
+    private final Notifier notifier;
+
+    // Only touched by the sampling thread
+    private final int[] ring = new int[kWindow];
+    private final int[] sorted = new int[kWindow];
+    private int next = 0;
+    private int filled = 0;
+    private boolean lastDetected = false;
+    private long rawDetectMicros = 0;
+    private long stopMicros = 0;
+    private int stopDistance = 0;
+    private int minDistanceAfterStop = Integer.MAX_VALUE;
+
+    // Filtered distance in the low 32 bits, connected and coral flags above it
+    private volatile long state = 0;
+    private volatile boolean stopOnDetect = false;
+
+    private volatile double lastDetectionLatencyMs = 0;
+    private volatile double maxDetectionLatencyMs = 0;
+    private volatile double lastStopDistanceMm = 0;
+
+    public CoralSensor(Ranger ranger, Runnable stopAction) {
+        this.ranger = ranger;
+        this.stopAction = stopAction;
+
+        notifier = new Notifier(this::sample);
+        notifier.setName("CoralSensor");
+        notifier.startPeriodic(kPeriod);
+    }
+
+    /**
+     * Sets up a LaserCan for short range coral detection.
+     * @param laserCan Sensor to read.
+     * @return Ranger that reads the sensor.
+     */
+    public static Ranger laserCan(LaserCan laserCan) {
+        try {
+            laserCan.setRangingMode(LaserCan.RangingMode.SHORT);
+            laserCan.setTimingBudget(LaserCan.TimingBudget.TIMING_BUDGET_20MS);
+        } catch (ConfigurationFailedException e) {
+            // Keep whatever the sensor already has, readings still work
+        }
+
+        return () -> {
+            LaserCan.Measurement measurement = laserCan.getMeasurement();
+            if (measurement == null) {
+                return kDisconnected;
+            }
+            if (measurement.status != LaserCan.LASERCAN_STATUS_VALID_MEASUREMENT) {
+                return kInvalid;
+            }
+            return measurement.distance_mm;
+        };
+    }
+
+    /**
+     * Arms or disarms stopping the rollers as soon as coral is detected.
+     * @param enabled True to stop the rollers on the next detection.
+     */
+    public void setStopOnDetect(boolean enabled) {
+        stopOnDetect = enabled;
+    }
+
+    public boolean isConnected() {
+        return (state & kConnectedBit) != 0;
+    }
+
+    public boolean hasCoral() {
+        return (state & kCoralBit) != 0;
+    }
+
+    /**
+     * Gets the filtered distance reading.
+     * @return Distance in millimeters, or Integer.MAX_VALUE if there's no reading.
+     */
+    public int getDistanceMm() {
+        return (int) state;
+    }
+
+    /**
+     * Gets the time from the first raw reading under the threshold to the filtered detection.
+     * @return Latency of the most recent detection in milliseconds.
+     */
+    public double getDetectionLatencyMs() {
+        return lastDetectionLatencyMs;
+    }
+
+    public double getMaxDetectionLatencyMs() {
+        return maxDetectionLatencyMs;
+    }
+
+    /**
+     * Gets how far the coral kept moving after the rollers were stopped by a detection.
+     * @return Stop distance of the most recent detection in millimeters.
+     */
+    public double getStopDistanceMm() {
+        return lastStopDistanceMm;
+    }
+
+    private void sample() {
+        long now = RobotController.getFPGATime();
+        int raw = ranger.measure();
+        if (raw < 0) {
+            filled = 0;
+            next = 0;
+            lastDetected = false;
+            state = raw == kDisconnected ? Integer.MAX_VALUE : (kConnectedBit | Integer.MAX_VALUE);
+            return;
+        }
+
+        if (raw < kDetectDistanceMm && rawDetectMicros == 0) {
+            rawDetectMicros = now;
+        } else if (raw >= kDetectDistanceMm) {
+            rawDetectMicros = 0;
+        }
+
+        ring[next] = raw;
+        next = (next + 1) % kWindow;
+        filled = Math.min(filled + 1, kWindow);
+        int distance = median();
+        boolean detected = distance < kDetectDistanceMm;
+
+        if (detected && !lastDetected) {
+            if (stopOnDetect) {
+                stopAction.run();
+                stopOnDetect = false;
+                stopMicros = now;
+                stopDistance = distance;
+                minDistanceAfterStop = distance;
+            }
+            double latency = rawDetectMicros == 0 ? 0 : (now - rawDetectMicros) / 1000.0;
+            lastDetectionLatencyMs = latency;
+            maxDetectionLatencyMs = Math.max(maxDetectionLatencyMs, latency);
+        }
+        lastDetected = detected;
+
+        if (stopMicros != 0) {
+            minDistanceAfterStop = Math.min(minDistanceAfterStop, raw);
+            if (now - stopMicros > kStopWatchMicros) {
+                lastStopDistanceMm = stopDistance - minDistanceAfterStop;
+                stopMicros = 0;
+            }
+        }
+
+        state = kConnectedBit | (detected ? kCoralBit : 0) | distance;
+    }
+
+    private int median() {
+        // Insertion sort of at most kWindow values, no allocation
+        for (int i = 0; i < filled; i++) {
+            int value = ring[i];
+            int j = i - 1;
+            while (j >= 0 && sorted[j] > value) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = value;
+        }
+        return sorted[filled / 2];
+    }
+}
@@ -1,68 +1,86 @@
 package frc.robot.subsystems;
 
-
-import com.revrobotics.spark.SparkMax;
-import com.revrobotics.spark.SparkBase.PersistMode;
-import com.revrobotics.spark.SparkLowLevel.MotorType;
-import com.revrobotics.spark.config.SparkMaxConfig;
-import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
-
-import au.grapplerobotics.LaserCan;
-
-import com.revrobotics.spark.SparkBase.ResetMode;
-
 import edu.wpi.first.wpilibj.Alert;
 import edu.wpi.first.wpilibj.Alert.AlertType;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
+import frc.robot.LoopProfiler;
+import frc.robot.replay.InputRecorder;
 
 public class Ejector extends SubsystemBase {
-    private final SparkMax topMotor = new SparkMax(Constants.RobotMap.kEjectorMotorA, MotorType.kBrushless);
-    private final SparkMax bottomMotor = new SparkMax(Constants.RobotMap.kEjectorMotorB, MotorType.kBrushless);
-
-    private final SparkMaxConfig normalConfig = new SparkMaxConfig();
-    private final SparkMaxConfig invertedConfig = new SparkMaxConfig();
-
-    private final LaserCan coralDetector = new LaserCan(Constants.RobotMap.kCoralDetector);
+    private final EjectorIO io;
+    private final EjectorIO.EjectorInputs inputs = new EjectorIO.EjectorInputs();
+    private final InputRecorder.Block inputsBlock;
     private final Alert coralDetectorAlert = new Alert("Coral Detector not found", AlertType.kError);
+    private final StatusFrameManager statusFrames;
+    private final StatusFrameManager.Device[] motorFrames;
+
+    // Snapshot taken once at the start of every loop in periodic(). Everything else in the
+    // loop (triggers, commands, dashboard) reads these instead of the hardware.
+    private boolean coralDetectorConnected = false;
+    private boolean coralDetected = false;
+    private double topMotorOutput = 0;
+    private double bottomMotorOutput = 0;
+
+    private final LoopProfiler.Section periodicSection = LoopProfiler.section("Ejector.periodic");
+
+    private final TelemetryPublisher.DoubleChannel topMotorChannel;
+    private final TelemetryPublisher.DoubleChannel bottomMotorChannel;
+    private final TelemetryPublisher.DoubleChannel detectionLatencyChannel;
+    private final TelemetryPublisher.DoubleChannel maxDetectionLatencyChannel;
+    private final TelemetryPublisher.DoubleChannel stopDistanceChannel;
+
+    public Ejector(EjectorIO io, TelemetryPublisher telemetry, StatusFrameManager statusFrames) {
+        this.io = io;
+        inputsBlock = InputRecorder.register("Ejector", inputs);
+        topMotorChannel = telemetry.addDouble("Ejector Top Motor", TelemetryPublisher.Rate.kDiagnostic, 0.01);
+        bottomMotorChannel = telemetry.addDouble("Ejector Bottom Motor", TelemetryPublisher.Rate.kDiagnostic, 0.01);
+        detectionLatencyChannel = telemetry.addDouble("Coral Detection Latency (ms)", TelemetryPublisher.Rate.kDiagnostic, 0.1);
+        maxDetectionLatencyChannel = telemetry.addDouble("Coral Detection Max Latency (ms)", TelemetryPublisher.Rate.kDiagnostic, 0.1);
+        stopDistanceChannel = telemetry.addDouble("Coral Stop Distance (mm)", TelemetryPublisher.Rate.kDiagnostic, 0.5);
+        SmartDashboard.putData(this);
 
-    public Ejector() {
-        normalConfig
-            .smartCurrentLimit(40)
-            .idleMode(IdleMode.kBrake)
-            .inverted(false);
-
-        invertedConfig
-            .smartCurrentLimit(40)
-            .idleMode(IdleMode.kBrake)
-            .inverted(true);
-        
-        topMotor.configure(
-            normalConfig,
-            ResetMode.kResetSafeParameters,
-            PersistMode.kPersistParameters);
-
-        bottomMotor.configure(
-            invertedConfig,
-            ResetMode.kResetSafeParameters,
-            PersistMode.kPersistParameters);
+        this.statusFrames = statusFrames;
+        motorFrames = io.registerStatusFrames(statusFrames);
     }
 
+    /**
+     * Checks the coral detector reading sampled at the start of this loop.
+     * @return True if a coral is loaded in the ejector.
+     */
     public boolean hasCoral() {
-        if (coralDetector.getMeasurement() != null) {
-            coralDetectorAlert.set(false);
-            return coralDetector.getMeasurement().distance_mm < 50.8;
-        }
-        
-        coralDetectorAlert.set(true);
-        return false;
+        return coralDetected;
+    }
+
+    public double getTopMotorOutput() {
+        return topMotorOutput;
+    }
+
+    public double getBottomMotorOutput() {
+        return bottomMotorOutput;
+    }
+
+    /**
+     * Copies the ejector's inputs once and stores them for the rest of the loop. The coral
+     * detector is read by the CoralSensor thread, so none of this waits on CAN. When replaying,
+     * the recorded inputs replace whatever the IO reported.
+     */
+    private void sampleInputs() {
+        io.updateInputs(inputs);
+        inputsBlock.process();
+
+        coralDetectorConnected = inputs.coralDetectorConnected;
+        coralDetected = inputs.coralDetected;
+        coralDetectorAlert.set(!coralDetectorConnected);
+
+        topMotorOutput = inputs.topMotorOutput;
+        bottomMotorOutput = inputs.bottomMotorOutput;
     }
 
     private void setMotorSpeeds(double topMotorSpeed,double bottomMotorSpeed) {
-        topMotor.set(topMotorSpeed);
-        bottomMotor.set(bottomMotorSpeed);
+        io.setMotorSpeeds(topMotorSpeed, bottomMotorSpeed);
     }
 
     public Command stop(){
@@ -72,12 +90,12 @@ public class Ejector extends SubsystemBase {
     }
 
     public Command eject(){
-       return this.run(() -> {
+       return LoopProfiler.profile(statusFrames.activeWhile(this.run(() -> {
             setMotorSpeeds(
                 Constants.EjectorConstants.kEjectionSpeed,
                 Constants.EjectorConstants.kEjectionSpeed
             );
-       }).withName("Eject");
+       }), motorFrames).withName("Eject"));
     }
 
     public Command reverse() {
@@ -91,21 +109,38 @@ public class Ejector extends SubsystemBase {
     public Command intake(){
         //Until front bean break, run moters 
         // True if blocked
-        return this.run(() -> {
+        // The sensor thread stops the rollers the moment it sees coral, and the IO ignores this
+        // loop's speeds until the command ends, so only recorded inputs are used here.
+        return LoopProfiler.profile(statusFrames.activeWhile(this.run(() -> {
+            if (coralDetected) {
+                setMotorSpeeds(0, 0);
+                return;
+            }
             setMotorSpeeds(
                 Constants.EjectorConstants.kIntakeSpeed, 
                 Constants.EjectorConstants.kIntakeSpeed
             );
         }).until(
             () -> hasCoral()
-        ).withName("Intake");
+        ).beforeStarting(
+            () -> io.setStopOnDetect(true)
+        ).finallyDo(
+            () -> io.setStopOnDetect(false)
+        ), motorFrames).withName("Intake"));
     }
 
     public void periodic() {
+        long start = System.nanoTime();
+
+        sampleInputs();
+
         // SmartDashboard.putBoolean("Coral is loaded", hasCoral());
-        SmartDashboard.putNumber("Ejector Top Motor", topMotor.get());
-        SmartDashboard.putNumber("Ejector Bottom Motor", bottomMotor.get());
-        SmartDashboard.putData(this);
+        topMotorChannel.set(topMotorOutput);
+        bottomMotorChannel.set(bottomMotorOutput);
+        detectionLatencyChannel.set(inputs.detectionLatencyMs);
+        maxDetectionLatencyChannel.set(inputs.maxDetectionLatencyMs);
+        stopDistanceChannel.set(inputs.stopDistanceMm);
 
+        periodicSection.record(start);
     }
 }
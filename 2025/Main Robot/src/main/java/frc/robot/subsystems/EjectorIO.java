@@ -0,0 +1,72 @@
+package frc.robot.subsystems;
+
+import java.nio.ByteBuffer;
+
+import frc.robot.replay.LoggableInputs;
+
+/**
+ * Hardware layer for the Ejector. The defaults do nothing, which is what replay uses: the
+ * inputs come from the log and outputs go nowhere.
+ */
+public interface EjectorIO {
+
+    public static class EjectorInputs implements LoggableInputs {
+        public boolean coralDetectorConnected = false;
+        public boolean coralDetected = false;
+        public double topMotorOutput = 0;
+        public double bottomMotorOutput = 0;
+        public double detectionLatencyMs = 0;
+        public double maxDetectionLatencyMs = 0;
+        public double stopDistanceMm = 0;
+
+        @Override
+        public int size() {
+            return 2 + 5 * 8;
+        }
+
+        @Override
+        public void toLog(ByteBuffer buffer, int offset) {
+            buffer.put(offset, (byte) (coralDetectorConnected ? 1 : 0));
+            buffer.put(offset + 1, (byte) (coralDetected ? 1 : 0));
+            buffer.putDouble(offset + 2, topMotorOutput);
+            buffer.putDouble(offset + 10, bottomMotorOutput);
+            buffer.putDouble(offset + 18, detectionLatencyMs);
+            buffer.putDouble(offset + 26, maxDetectionLatencyMs);
+            buffer.putDouble(offset + 34, stopDistanceMm);
+        }
+
+        @Override
+        public void fromLog(ByteBuffer buffer, int offset) {
+            coralDetectorConnected = buffer.get(offset) != 0;
+            coralDetected = buffer.get(offset + 1) != 0;
+            topMotorOutput = buffer.getDouble(offset + 2);
+            bottomMotorOutput = buffer.getDouble(offset + 10);
+            detectionLatencyMs = buffer.getDouble(offset + 18);
+            maxDetectionLatencyMs = buffer.getDouble(offset + 26);
+            stopDistanceMm = buffer.getDouble(offset + 34);
+        }
+    }
+
+    /**
+     * Copies the latest sensor and motor values into inputs.
+     * @param inputs Inputs to fill.
+     */
+    default void updateInputs(EjectorInputs inputs) {}
+
+    default void setMotorSpeeds(double topMotorSpeed, double bottomMotorSpeed) {}
+
+    /**
+     * Makes the coral sensor stop the rollers by itself the moment it sees coral.
+     * @param enabled True while intaking.
+     */
+    default void setStopOnDetect(boolean enabled) {}
+
+    /**
+     * Puts the motor controllers under the status frame manager.
+     * @param statusFrames Status frame manager.
+     * @return Handles for the controllers, empty if there aren't any.
+     */
+    default StatusFrameManager.Device[] registerStatusFrames(StatusFrameManager statusFrames) {
+        return new StatusFrameManager.Device[0];
+    }
+}
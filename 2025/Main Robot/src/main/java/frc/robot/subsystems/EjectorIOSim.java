@@ -0,0 +1,131 @@
+package frc.robot.subsystems;
+
+import com.revrobotics.sim.SparkMaxSim;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+import edu.wpi.first.wpilibj.simulation.RoboRioSim;
+
+/**
+ * Simulated Ejector. The real SparkMax code and CoralSensor thread run unchanged against a
+ * physics model: each roller is a NEO driving a DCMotorSim, and a coral slides through the
+ * ejector at the rollers' surface speed, so it coasts on after a stop the same way it does on
+ * the robot. The simulated LaserCan reports the distance from the coral's front edge to the
+ * sensor.
+ *
+ * <p>Physics steps on its own 1 kHz notifier, finer than the 250 Hz sensor thread, so stop
+ * latency and stop distance come out right. With SimHooks paused timing it runs as fast as the
+ * workstation can step it. kRollerMoi is a guess: tune it until the stop distance
+ * MechanismSimulator prints matches "Coral Stop Distance (mm)" logged on the robot.
+ */
+public class EjectorIOSim extends EjectorIOSpark {
+    private static final double kPhysicsPeriod = 0.001;
+    private static final DCMotor kMotor = DCMotor.getNEO(1);
+    private static final double kGearing = 4.0;
+    private static final double kRollerMoi = 0.0004; // kg m^2, roller plus wheels
+    private static final double kRollerRadius = 0.0254; // meters
+
+    // Coral path, measured from where the coral first touches the rollers
+    private static final double kCoralLength = 0.30;
+    private static final double kSensorPosition = 0.22;
+    private static final double kExitPosition = 0.35;
+    // Human player reaction plus the coral sliding down the chute
+    private static final double kFeedDelay = 0.3;
+    private static final int kNothingInRangeMm = 400;
+
+    private final SparkMaxSim topMotorSim;
+    private final SparkMaxSim bottomMotorSim;
+    private final DCMotorSim topRoller = createRoller();
+    private final DCMotorSim bottomRoller = createRoller();
+    private final CoralPath coralPath;
+    private final Notifier physics;
+
+    private volatile boolean intaking = false;
+    private double feedTimer = 0;
+
+    public EjectorIOSim() {
+        this(new CoralPath());
+    }
+
+    private EjectorIOSim(CoralPath coralPath) {
+        super(coralPath);
+        this.coralPath = coralPath;
+        topMotorSim = new SparkMaxSim(topMotor, kMotor);
+        bottomMotorSim = new SparkMaxSim(bottomMotor, kMotor);
+
+        physics = new Notifier(this::step);
+        physics.setName("EjectorSim");
+        physics.startPeriodic(kPhysicsPeriod);
+    }
+
+    private static DCMotorSim createRoller() {
+        return new DCMotorSim(LinearSystemId.createDCMotorSystem(kMotor, kRollerMoi, kGearing), kMotor);
+    }
+
+    @Override
+    public void setStopOnDetect(boolean enabled) {
+        // Only armed by the intake command, which is when the human player feeds a coral
+        intaking = enabled;
+        super.setStopOnDetect(enabled);
+    }
+
+    /**
+     * Places a coral in the ejector, already at the sensor. For starting auto with a preload.
+     */
+    public void preload() {
+        coralPath.position = kSensorPosition;
+        coralPath.present = true;
+    }
+
+    private synchronized void step() {
+        double batteryVoltage = RoboRioSim.getVInVoltage();
+
+        topRoller.setInputVoltage(topMotorSim.getAppliedOutput() * batteryVoltage);
+        bottomRoller.setInputVoltage(bottomMotorSim.getAppliedOutput() * batteryVoltage);
+        topRoller.update(kPhysicsPeriod);
+        bottomRoller.update(kPhysicsPeriod);
+        topMotorSim.iterate(topRoller.getAngularVelocityRPM() * kGearing, batteryVoltage, kPhysicsPeriod);
+        bottomMotorSim.iterate(bottomRoller.getAngularVelocityRPM() * kGearing, batteryVoltage, kPhysicsPeriod);
+
+        if (!coralPath.present) {
+            feedTimer = intaking ? feedTimer + kPhysicsPeriod : 0;
+            if (feedTimer >= kFeedDelay) {
+                coralPath.position = 0;
+                coralPath.present = true;
+                feedTimer = 0;
+            }
+            return;
+        }
+
+        // The coral is pinched between both rollers and moves at their average surface speed
+        double surfaceSpeed = (topRoller.getAngularVelocityRadPerSec() + bottomRoller.getAngularVelocityRadPerSec()) / 2 * kRollerRadius;
+        coralPath.position += surfaceSpeed * kPhysicsPeriod;
+        if (coralPath.position - kCoralLength > kExitPosition) {
+            coralPath.present = false;
+        }
+    }
+
+    /**
+     * The coral's place in the ejector, read by the simulated LaserCan.
+     */
+    private static class CoralPath implements CoralSensor.Ranger {
+        // Front edge of the coral, meters
+        private volatile double position = 0;
+        private volatile boolean present = false;
+
+        @Override
+        public int measure() {
+            if (!present) {
+                return kNothingInRangeMm;
+            }
+            double front = position;
+            if (front <= kSensorPosition) {
+                return (int) Math.min(kNothingInRangeMm, (kSensorPosition - front) * 1000);
+            }
+            // Front has gone past, the sensor sees the coral's side until its back edge clears
+            return front - kCoralLength < kSensorPosition ? 0 : kNothingInRangeMm;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package frc.robot.subsystems;
+
+import com.revrobotics.spark.SparkMax;
+import com.revrobotics.spark.SparkBase.PersistMode;
+import com.revrobotics.spark.SparkBase.ResetMode;
+import com.revrobotics.spark.SparkLowLevel.MotorType;
+import com.revrobotics.spark.config.SparkMaxConfig;
+import com.revrobotics.spark.config.SparkBaseConfig.IdleMode;
+
+import au.grapplerobotics.LaserCan;
+import frc.robot.Constants;
+
+/**
+ * Ejector hardware: two SparkMax rollers and the LaserCan coral detector, which is sampled on
+ * its own CoralSensor thread.
+ */
+public class EjectorIOSpark implements EjectorIO {
+    protected final SparkMax topMotor = new SparkMax(Constants.RobotMap.kEjectorMotorA, MotorType.kBrushless);
+    protected final SparkMax bottomMotor = new SparkMax(Constants.RobotMap.kEjectorMotorB, MotorType.kBrushless);
+
+    private final SparkMaxConfig normalConfig = new SparkMaxConfig();
+    private final SparkMaxConfig invertedConfig = new SparkMaxConfig();
+
+    private final CoralSensor coralSensor;
+    // Set when the sensor thread stops the rollers, so the main loop can't restart them before
+    // its snapshot shows the coral. Cleared when stopping on detect is armed or disarmed.
+    private boolean stoppedOnDetect = false;
+
+    public EjectorIOSpark() {
+        this(CoralSensor.laserCan(new LaserCan(Constants.RobotMap.kCoralDetector)));
+    }
+
+    /**
+     * Creates the ejector with a different coral detector, used by simulation.
+     * @param coralDetector Distance source for the coral sensor.
+     */
+    protected EjectorIOSpark(CoralSensor.Ranger coralDetector) {
+        normalConfig
+            .smartCurrentLimit(40)
+            .idleMode(IdleMode.kBrake)
+            .inverted(false);
+
+        invertedConfig
+            .smartCurrentLimit(40)
+            .idleMode(IdleMode.kBrake)
+            .inverted(true);
+
+        topMotor.configure(
+            normalConfig,
+            ResetMode.kResetSafeParameters,
+            PersistMode.kPersistParameters);
+
+        bottomMotor.configure(
+            invertedConfig,
+            ResetMode.kResetSafeParameters,
+            PersistMode.kPersistParameters);
+
+        // Started last, the sensor thread can stop the motors as soon as it's running
+        coralSensor = new CoralSensor(coralDetector, this::stopOnDetect);
+    }
+
+    @Override
+    public void updateInputs(EjectorInputs inputs) {
+        inputs.coralDetectorConnected = coralSensor.isConnected();
+        inputs.coralDetected = coralSensor.hasCoral();
+        inputs.topMotorOutput = topMotor.get();
+        inputs.bottomMotorOutput = bottomMotor.get();
+        inputs.detectionLatencyMs = coralSensor.getDetectionLatencyMs();
+        inputs.maxDetectionLatencyMs = coralSensor.getMaxDetectionLatencyMs();
+        inputs.stopDistanceMm = coralSensor.getStopDistanceMm();
+    }
+
+    @Override
+    public synchronized void setMotorSpeeds(double topMotorSpeed, double bottomMotorSpeed) {
+        if (stoppedOnDetect) {
+            return;
+        }
+        topMotor.set(topMotorSpeed);
+        bottomMotor.set(bottomMotorSpeed);
+    }
+
+    @Override
+    public synchronized void setStopOnDetect(boolean enabled) {
+        stoppedOnDetect = false;
+        coralSensor.setStopOnDetect(enabled);
+    }
+
+    private synchronized void stopOnDetect() {
+        topMotor.set(0);
+        bottomMotor.set(0);
+        stoppedOnDetect = true;
+    }
+
+    @Override
+    public StatusFrameManager.Device[] registerStatusFrames(StatusFrameManager statusFrames) {
+        return new StatusFrameManager.Device[] {
+            statusFrames.register(topMotor),
+            statusFrames.register(bottomMotor)
+        };
+    }
+}
@@ -0,0 +1,169 @@
+package frc.robot.subsystems;
+
+import java.util.ArrayList;
+
+import com.revrobotics.spark.SparkBase.PersistMode;
+import com.revrobotics.spark.SparkBase.ResetMode;
+import com.revrobotics.spark.SparkMax;
+import com.revrobotics.spark.config.SparkMaxConfig;
+
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+
+/**
+ * Sets how often each SparkMax sends its status frames based on what it's doing. Mechanisms sit
+ * on slow frames while idle and only get fast position, velocity and output frames while one of
+ * their commands is running, which leaves more of the CAN bus for the swerve modules.
+ */
+public class StatusFrameManager extends SubsystemBase {
+
+    public enum Profile {
+        /** Just enough to notice faults and keep the dashboard roughly current. */
+        kIdle(100, 200, 200),
+        /** Full rate feedback for closed loop control and sensing. */
+        kActive(10, 20, 20);
+
+        // Status 0 carries applied output and faults, status 1 velocity, voltage, current and
+        // temperature, status 2 position.
+        private final int outputPeriodMs;
+        private final int telemetryPeriodMs;
+        private final int positionPeriodMs;
+        private final SparkMaxConfig config = new SparkMaxConfig();
+
+        Profile(int outputPeriodMs, int telemetryPeriodMs, int positionPeriodMs) {
+            this.outputPeriodMs = outputPeriodMs;
+            this.telemetryPeriodMs = telemetryPeriodMs;
+            this.positionPeriodMs = positionPeriodMs;
+
+            config.signals
+                .appliedOutputPeriodMs(outputPeriodMs)
+                .faultsPeriodMs(outputPeriodMs)
+                .primaryEncoderVelocityPeriodMs(telemetryPeriodMs)
+                .busVoltagePeriodMs(telemetryPeriodMs)
+                .outputCurrentPeriodMs(telemetryPeriodMs)
+                .motorTemperaturePeriodMs(telemetryPeriodMs)
+                .primaryEncoderPositionPeriodMs(positionPeriodMs)
+                // Nothing is wired to the data ports on these controllers
+                .analogVoltagePeriodMs(kUnusedPeriodMs)
+                .externalOrAltEncoderPosition(kUnusedPeriodMs)
+                .absoluteEncoderPositionPeriodMs(kUnusedPeriodMs);
+        }
+
+        private double framesPerSecond() {
+            return 1000.0 / outputPeriodMs + 1000.0 / telemetryPeriodMs + 1000.0 / positionPeriodMs + kUnusedFrames * 1000.0 / kUnusedPeriodMs;
+        }
+    }
+
+    private static final int kUnusedPeriodMs = 500;
+    private static final int kUnusedFrames = 4;
+    // REV factory defaults for status frames 0 through 6
+    private static final int[] kDefaultPeriodsMs = {10, 20, 20, 50, 20, 200, 200};
+    // Extended CAN frame with 8 data bytes, including worst case bit stuffing
+    private static final double kBitsPerFrame = 160;
+    private static final double kBusBitsPerSecond = 1_000_000;
+    // Wait this long before slowing a device down, so back to back commands don't thrash configs
+    private static final long kIdleDelayMicros = 250_000;
+
+    private final ArrayList<Device> devices = new ArrayList<>();
+    private final TelemetryPublisher.DoubleChannel defaultLoadChannel;
+    private final TelemetryPublisher.DoubleChannel currentLoadChannel;
+
+    public StatusFrameManager(TelemetryPublisher telemetry) {
+        defaultLoadChannel = telemetry.addDouble("CAN/SparkMax Load Default (%)", TelemetryPublisher.Rate.kDiagnostic, 0.01);
+        currentLoadChannel = telemetry.addDouble("CAN/SparkMax Load Budgeted (%)", TelemetryPublisher.Rate.kDiagnostic, 0.01);
+    }
+
+    /**
+     * Puts a controller under this manager. It starts on the idle profile.
+     * @param motor Controller to manage.
+     * @return Handle used to request faster frames.
+     */
+    public Device register(SparkMax motor) {
+        Device device = new Device(motor);
+        devices.add(device);
+        device.apply(Profile.kIdle);
+        return device;
+    }
+
+    /**
+     * Runs the given devices on active frames for as long as the command runs.
+     * @param command Command that needs fast feedback.
+     * @param active Devices the command uses.
+     * @return Wrapped command.
+     */
+    public Command activeWhile(Command command, Device... active) {
+        return command
+            .beforeStarting(() -> {
+                for (Device device : active) {
+                    device.users++;
+                }
+            })
+            .finallyDo(() -> {
+                for (Device device : active) {
+                    device.users--;
+                }
+            });
+    }
+
+    /**
+     * Estimates SparkMax status traffic as a share of the CAN bus.
+     * @param useDefaults True to estimate with factory default frame rates instead.
+     * @return Bus load in percent.
+     */
+    public double getEstimatedLoad(boolean useDefaults) {
+        double framesPerSecond = 0;
+        for (int i = 0; i < devices.size(); i++) {
+            framesPerSecond += useDefaults ? defaultFramesPerSecond() : devices.get(i).profile.framesPerSecond();
+        }
+        return 100 * framesPerSecond * kBitsPerFrame / kBusBitsPerSecond;
+    }
+
+    private static double defaultFramesPerSecond() {
+        double framesPerSecond = 0;
+        for (int period : kDefaultPeriodsMs) {
+            framesPerSecond += 1000.0 / period;
+        }
+        return framesPerSecond;
+    }
+
+    @Override
+    public void periodic() {
+        long now = RobotController.getFPGATime();
+        for (int i = 0; i < devices.size(); i++) {
+            devices.get(i).update(now);
+        }
+
+        defaultLoadChannel.set(getEstimatedLoad(true));
+        currentLoadChannel.set(getEstimatedLoad(false));
+    }
+
+    public static class Device {
+        private final SparkMax motor;
+        private Profile profile = null;
+        private int users = 0;
+        private long lastUsedMicros = 0;
+
+        private Device(SparkMax motor) {
+            this.motor = motor;
+        }
+
+        private void update(long now) {
+            if (users > 0) {
+                lastUsedMicros = now;
+                apply(Profile.kActive);
+            } else if (now - lastUsedMicros > kIdleDelayMicros) {
+                apply(Profile.kIdle);
+            }
+        }
+
+        private void apply(Profile next) {
+            if (next == profile) {
+                return;
+            }
+            // Only the signal periods change, everything else the subsystem configured stays
+            motor.configureAsync(next.config, ResetMode.kNoResetSafeParameters, PersistMode.kNoPersistParameters);
+            profile = next;
+        }
+    }
+}
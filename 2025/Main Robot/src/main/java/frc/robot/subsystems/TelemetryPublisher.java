@@ -0,0 +1,238 @@
+package frc.robot.subsystems;
+
+import java.util.ArrayList;
+
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.LoadShedder;
+import frc.robot.LoopProfiler;
+
+/**
+ * Publishes dashboard values through typed NetworkTables publishers. Subsystems set values
+ * on their channels whenever they like, and this subsystem sends them once per loop at most,
+ * only when the channel's period has passed and the value actually changed.
+ */
+public class TelemetryPublisher extends SubsystemBase {
+
+    public enum Rate {
+        /** Values only used for debugging and tuning. */
+        kDiagnostic(10),
+        /** Values the drive team watches during a match. */
+        kMatchCritical(50);
+
+        private final long periodMicros;
+
+        Rate(double hz) {
+            this.periodMicros = (long) (1e6 / hz);
+        }
+    }
+
+    // Rough size of one NT4 value update on the wire: timestamp, topic id, type and payload
+    private static final int kBytesPerUpdate = 20;
+
+    private final NetworkTable table = NetworkTableInstance.getDefault().getTable("SmartDashboard");
+    private final ArrayList<Channel> channels = new ArrayList<>();
+
+    private long publishedUpdates = 0;
+    private long skippedUpdates = 0;
+    private long publishMicros = 0;
+
+    private final LoopProfiler.Section periodicSection = LoopProfiler.section("TelemetryPublisher.periodic");
+    // Match critical values are throttled only at the highest shed level, diagnostics go first
+    private final LoadShedder.Task matchCriticalTask = LoadShedder.task("Telemetry Match Critical", LoadShedder.Priority.kNormal);
+    private final LoadShedder.Task diagnosticTask = LoadShedder.task("Telemetry Diagnostic", LoadShedder.Priority.kDeferrable);
+
+    private final DoubleChannel bytesSavedChannel;
+    private final DoubleChannel timeSavedChannel;
+    private final DoubleChannel publishTimeChannel;
+
+    public TelemetryPublisher() {
+        bytesSavedChannel = addDouble("Telemetry/Bytes Saved Per Sec", Rate.kDiagnostic, 1);
+        timeSavedChannel = addDouble("Telemetry/Time Saved Per Loop (ms)", Rate.kDiagnostic, 0.001);
+        publishTimeChannel = addDouble("Telemetry/Publish Time (ms)", Rate.kDiagnostic, 0.001);
+    }
+
+    /**
+     * Creates a number channel. Call once per key, usually from a subsystem constructor.
+     * @param key SmartDashboard key.
+     * @param rate How often the value may be sent.
+     * @param epsilon Smallest change that is worth sending.
+     * @return Channel to set values on.
+     */
+    public DoubleChannel addDouble(String key, Rate rate, double epsilon) {
+        DoubleChannel channel = new DoubleChannel(table.getDoubleTopic(key).publish(), rate, epsilon);
+        channels.add(channel);
+        return channel;
+    }
+
+    /**
+     * Creates a boolean channel. Call once per key, usually from a subsystem constructor.
+     * @param key SmartDashboard key.
+     * @param rate How often the value may be sent.
+     * @return Channel to set values on.
+     */
+    public BooleanChannel addBoolean(String key, Rate rate) {
+        BooleanChannel channel = new BooleanChannel(table.getBooleanTopic(key).publish(), rate);
+        channels.add(channel);
+        return channel;
+    }
+
+    /**
+     * Sends every channel that is due. Runs from periodic(), but is public so the flush can
+     * be scheduled somewhere else.
+     */
+    public void flush() {
+        flush(true, true);
+    }
+
+    /**
+     * Sends the due channels of the chosen rates.
+     * @param matchCritical True to send match critical channels.
+     * @param diagnostic True to send diagnostic channels.
+     */
+    private void flush(boolean matchCritical, boolean diagnostic) {
+        long start = RobotController.getFPGATime();
+
+        int published = 0;
+        int skipped = 0;
+        for (int i = 0; i < channels.size(); i++) {
+            Channel channel = channels.get(i);
+            if (!(channel.rate == Rate.kDiagnostic ? diagnostic : matchCritical)) {
+                continue;
+            }
+            switch (channel.flush(start)) {
+                case kPublished -> published++;
+                case kSkipped -> skipped++;
+                case kNotDue -> { }
+            }
+        }
+
+        long elapsed = RobotController.getFPGATime() - start;
+        publishedUpdates += published;
+        skippedUpdates += skipped;
+        publishMicros += elapsed;
+
+        // Time saved is estimated from the average cost of the updates that did go out
+        double microsPerUpdate = publishedUpdates > 0 ? (double) publishMicros / publishedUpdates : 0;
+        bytesSavedChannel.set(skipped * kBytesPerUpdate * 50.0);
+        timeSavedChannel.set(skipped * microsPerUpdate / 1000.0);
+        publishTimeChannel.set(elapsed / 1000.0);
+    }
+
+    /**
+     * Gets the number of value updates that were not sent because they had not changed.
+     * @return Total skipped updates since startup.
+     */
+    public long getSkippedUpdates() {
+        return skippedUpdates;
+    }
+
+    @Override
+    public void periodic() {
+        long start = System.nanoTime();
+        boolean diagnostic = diagnosticTask.shouldRun();
+        boolean matchCritical = matchCriticalTask.shouldRun();
+        if (diagnostic || matchCritical) {
+            flush(matchCritical, diagnostic);
+        }
+        // Diagnostics are most of the channels, so they're charged with the whole flush
+        if (diagnostic) {
+            diagnosticTask.record(start);
+        } else if (matchCritical) {
+            matchCriticalTask.record(start);
+        }
+        periodicSection.record(start);
+    }
+
+    private enum FlushResult {
+        kPublished, kSkipped, kNotDue
+    }
+
+    private abstract static class Channel {
+        private final Rate rate;
+        private final long periodMicros;
+        private long lastPublishMicros = Long.MIN_VALUE / 2;
+        private boolean published = false;
+
+        Channel(Rate rate) {
+            this.rate = rate;
+            this.periodMicros = rate.periodMicros;
+        }
+
+        FlushResult flush(long nowMicros) {
+            if (nowMicros - lastPublishMicros < periodMicros) {
+                return FlushResult.kNotDue;
+            }
+            if (published && !changed()) {
+                return FlushResult.kSkipped;
+            }
+
+            send();
+            published = true;
+            lastPublishMicros = nowMicros;
+            return FlushResult.kPublished;
+        }
+
+        abstract boolean changed();
+
+        abstract void send();
+    }
+
+    public static class DoubleChannel extends Channel {
+        private final DoublePublisher publisher;
+        private final double epsilon;
+        private double value = 0;
+        private double lastSent = 0;
+
+        private DoubleChannel(DoublePublisher publisher, Rate rate, double epsilon) {
+            super(rate);
+            this.publisher = publisher;
+            this.epsilon = epsilon;
+        }
+
+        public void set(double value) {
+            this.value = value;
+        }
+
+        @Override
+        boolean changed() {
+            return Math.abs(value - lastSent) > epsilon;
+        }
+
+        @Override
+        void send() {
+            publisher.set(value);
+            lastSent = value;
+        }
+    }
+
+    public static class BooleanChannel extends Channel {
+        private final BooleanPublisher publisher;
+        private boolean value = false;
+        private boolean lastSent = false;
+
+        private BooleanChannel(BooleanPublisher publisher, Rate rate) {
+            super(rate);
+            this.publisher = publisher;
+        }
+
+        public void set(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        boolean changed() {
+            return value != lastSent;
+        }
+
+        @Override
+        void send() {
+            publisher.set(value);
+            lastSent = value;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package frc.robot.trajectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Alert;
+import edu.wpi.first.wpilibj.Alert.AlertType;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Constants.Field.Branch;
+
+/**
+ * Auto trajectories generated offline by TrajectoryBaker and deployed with the robot code. The
+ * file is memory mapped at startup and sampled straight out of the mapped buffer.
+ *
+ * <p>File layout, all little endian:
+ * <pre>
+ * header:  int magic, int version, int count, float dt
+ * index:   count x (byte start, byte tag, byte branch, byte unused, int samples, int offset, float endHeading)
+ * samples: per trajectory, samples x (float x, float y, float vx, float vy)
+ * </pre>
+ */
+public class BakedTrajectories {
+    public static final String kFileName = "auto_trajectories.bin";
+    static final int kMagic = 0x54313535; // "T155"
+    static final int kVersion = 1;
+    static final int kHeaderBytes = 16;
+    static final int kIndexBytes = 16;
+    static final int kSampleBytes = 16;
+
+    private final Trajectory[] trajectories;
+    private final Alert missingAlert = new Alert("Baked auto trajectories not found, using fallback autos", AlertType.kWarning);
+
+    private BakedTrajectories(Trajectory[] trajectories) {
+        this.trajectories = trajectories;
+        missingAlert.set(trajectories.length == 0);
+    }
+
+    /**
+     * Maps the trajectory file from the deploy directory. A missing or unreadable file gives
+     * an empty set, so autos fall back to their untracked versions.
+     * @return Loaded trajectories.
+     */
+    public static BakedTrajectories load() {
+        File file = new File(Filesystem.getDeployDirectory(), kFileName);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new BakedTrajectories(parse(mapped.order(ByteOrder.LITTLE_ENDIAN)));
+        } catch (IOException | RuntimeException e) {
+            return new BakedTrajectories(new Trajectory[0]);
+        }
+    }
+
+    private static Trajectory[] parse(ByteBuffer buffer) {
+        if (buffer.getInt(0) != kMagic || buffer.getInt(4) != kVersion) {
+            throw new IllegalStateException("Unknown trajectory file format");
+        }
+
+        int count = buffer.getInt(8);
+        double dt = buffer.getFloat(12);
+        Trajectory[] trajectories = new Trajectory[count];
+        for (int i = 0; i < count; i++) {
+            int entry = kHeaderBytes + i * kIndexBytes;
+            trajectories[i] = new Trajectory(
+                buffer,
+                buffer.get(entry),
+                buffer.get(entry + 1),
+                buffer.get(entry + 2),
+                buffer.getInt(entry + 4),
+                buffer.getInt(entry + 8),
+                dt,
+                new Rotation2d(buffer.getFloat(entry + 12)));
+        }
+        return trajectories;
+    }
+
+    /**
+     * Finds the trajectory from a start pose to a reef waypoint.
+     * @param start Index of the start pose in Auto.kStartPoses.
+     * @param tag Reef AprilTag ID.
+     * @param branch Reef branch.
+     * @return Trajectory, or null if it wasn't baked.
+     */
+    public Trajectory find(int start, int tag, Branch branch) {
+        for (Trajectory trajectory : trajectories) {
+            if (trajectory.start == start && trajectory.tag == tag && trajectory.branch == branch.ordinal()) {
+                return trajectory;
+            }
+        }
+        return null;
+    }
+
+    public static class Trajectory implements TrajectorySource {
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int tag;
+        private final int branch;
+        private final int samples;
+        private final int offset;
+        private final double dt;
+        private final Rotation2d endHeading;
+
+        private Trajectory(ByteBuffer buffer, int start, int tag, int branch, int samples, int offset, double dt, Rotation2d endHeading) {
+            this.buffer = buffer;
+            this.start = start;
+            this.tag = tag;
+            this.branch = branch;
+            this.samples = samples;
+            this.offset = offset;
+            this.dt = dt;
+            this.endHeading = endHeading;
+        }
+
+        @Override
+        public double getDuration() {
+            return (samples - 1) * dt;
+        }
+
+        @Override
+        public void sample(double time, double[] out) {
+            if (time >= getDuration()) {
+                int last = offset + (samples - 1) * kSampleBytes;
+                out[kX] = buffer.getFloat(last);
+                out[kY] = buffer.getFloat(last + 4);
+                out[kVx] = 0;
+                out[kVy] = 0;
+                return;
+            }
+
+            double position = Math.max(0, time) / dt;
+            int index = (int) position;
+            double fraction = position - index;
+            int a = offset + index * kSampleBytes;
+            int b = a + kSampleBytes;
+            for (int i = 0; i < kSampleSize; i++) {
+                double from = buffer.getFloat(a + i * 4);
+                out[i] = from + (buffer.getFloat(b + i * 4) - from) * fraction;
+            }
+        }
+
+        @Override
+        public Rotation2d getEndHeading() {
+            return endHeading;
+        }
+    }
+}
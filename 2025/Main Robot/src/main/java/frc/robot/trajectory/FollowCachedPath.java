@@ -0,0 +1,116 @@
+package frc.robot.trajectory;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.Constants.Field.Branch;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+
+/**
+ * Drives a cached path to the selected reef branch. If the selection changes on the way, the
+ * path from the robot's current cell to the new branch is spliced in without stopping.
+ *
+ * <p>Ends when the path is done, when nothing is selected, or right away when the path isn't in
+ * the cache yet. The miss queues it for planning, and whatever follows this command (normally
+ * goToPose for final alignment) drives the rest of the way.
+ */
+public class FollowCachedPath extends Command {
+    private final CommandSwerveDrivetrain drivetrain;
+    private final PathCache cache;
+    private final IntSupplier tag;
+    private final Supplier<Branch> branch;
+    private final BooleanSupplier isRedAlliance;
+
+    // Built for the first path, every later path is spliced into it
+    private FollowTrajectory follower = null;
+    private boolean following = false;
+    private boolean done = false;
+    private int currentTag = -1;
+    private Branch currentBranch = null;
+
+    /**
+     * Creates the command.
+     * @param drivetrain Drivetrain to drive.
+     * @param cache Path cache.
+     * @param tag Selected reef tag, or -1 if nothing is selected.
+     * @param branch Selected branch, or null if nothing is selected.
+     * @param isRedAlliance True if on the red alliance.
+     */
+    public FollowCachedPath(CommandSwerveDrivetrain drivetrain, PathCache cache, IntSupplier tag, Supplier<Branch> branch, BooleanSupplier isRedAlliance) {
+        this.drivetrain = drivetrain;
+        this.cache = cache;
+        this.tag = tag;
+        this.branch = branch;
+        this.isRedAlliance = isRedAlliance;
+        addRequirements(drivetrain);
+        setName("Follow Cached Path");
+    }
+
+    @Override
+    public void initialize() {
+        following = false;
+        done = false;
+        retarget();
+    }
+
+    @Override
+    public void execute() {
+        if (tag.getAsInt() != currentTag || branch.get() != currentBranch) {
+            retarget();
+        }
+        if (following && !done) {
+            follower.execute();
+        }
+    }
+
+    /**
+     * Looks up the path to the current selection and starts or splices it in.
+     */
+    private void retarget() {
+        currentTag = tag.getAsInt();
+        currentBranch = branch.get();
+        if (currentTag < 0 || currentBranch == null) {
+            done = true;
+            return;
+        }
+
+        // Speeds are robot relative, the cache wants field relative
+        SwerveDriveState state = drivetrain.getState();
+        double cos = state.Pose.getRotation().getCos();
+        double sin = state.Pose.getRotation().getSin();
+        double vx = state.Speeds.vxMetersPerSecond * cos - state.Speeds.vyMetersPerSecond * sin;
+        double vy = state.Speeds.vxMetersPerSecond * sin + state.Speeds.vyMetersPerSecond * cos;
+
+        SampledTrajectory path = cache.get(state.Pose, vx, vy, currentTag, currentBranch, isRedAlliance.getAsBoolean());
+        if (path == null) {
+            done = true;
+            return;
+        }
+
+        if (!following) {
+            if (follower == null) {
+                follower = FollowTrajectory.create(drivetrain, path, isRedAlliance);
+            }
+            follower.initialize();
+            following = true;
+        }
+        follower.splice(path);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return done || (following && follower.isFinished());
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        if (following) {
+            follower.end(interrupted);
+            following = false;
+        }
+    }
+}
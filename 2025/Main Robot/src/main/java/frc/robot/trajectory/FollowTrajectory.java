@@ -0,0 +1,139 @@
+package frc.robot.trajectory;
+
+import static edu.wpi.first.units.Units.MetersPerSecond;
+
+import java.util.function.BooleanSupplier;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.WrapperCommand;
+import frc.robot.generated.TunerConstants;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+
+/**
+ * Drives the robot along a TrajectorySource using the drivetrain's field centric facing angle
+ * request. Velocity comes from the trajectory, with a proportional correction on position error.
+ * Nothing is allocated while the command runs.
+ *
+ * <p>splice() switches to another trajectory mid-run. The gap between the robot and the start
+ * of the new trajectory is faded out over kSpliceBlendTime, so the reference doesn't jump.
+ */
+public class FollowTrajectory extends WrapperCommand {
+    private static final double kPositionGain = 2.0;
+    private static final double kMaxSpeed = TunerConstants.kSpeedAt12Volts.in(MetersPerSecond);
+    private static final double kSpliceBlendTime = 0.5;
+
+    private final CommandSwerveDrivetrain drivetrain;
+    private TrajectorySource trajectory;
+    private final BooleanSupplier isRedAlliance;
+    private final Reference reference;
+    private final Timer timer = new Timer();
+    private final double[] sample = new double[TrajectorySource.kSampleSize];
+
+    // Field centric requests are relative to the operator, who faces the other way on red
+    private Rotation2d blueHeading;
+    private Rotation2d redHeading;
+
+    // Robot's offset from the start of a spliced trajectory, faded out over kSpliceBlendTime
+    private double spliceOffsetX = 0;
+    private double spliceOffsetY = 0;
+
+    private FollowTrajectory(
+            CommandSwerveDrivetrain drivetrain,
+            TrajectorySource trajectory,
+            BooleanSupplier isRedAlliance,
+            Reference reference) {
+        super(drivetrain.fieldCentricFacingAngle(reference::getX, reference::getY, reference::getHeading));
+        this.drivetrain = drivetrain;
+        this.trajectory = trajectory;
+        this.isRedAlliance = isRedAlliance;
+        this.reference = reference;
+        this.blueHeading = trajectory.getEndHeading();
+        this.redHeading = trajectory.getEndHeading().rotateBy(Rotation2d.kPi);
+        setName("Follow Trajectory");
+    }
+
+    /**
+     * Creates a command that follows a trajectory and ends when its time runs out.
+     * @param drivetrain Drivetrain to drive.
+     * @param trajectory Trajectory to follow.
+     * @param isRedAlliance True if on the red alliance.
+     * @return Follow command.
+     */
+    public static FollowTrajectory create(CommandSwerveDrivetrain drivetrain, TrajectorySource trajectory, BooleanSupplier isRedAlliance) {
+        return new FollowTrajectory(drivetrain, trajectory, isRedAlliance, new Reference());
+    }
+
+    @Override
+    public void initialize() {
+        timer.restart();
+        spliceOffsetX = 0;
+        spliceOffsetY = 0;
+        super.initialize();
+    }
+
+    /**
+     * Switches to a new trajectory, starting from its beginning now. Call after initialize().
+     * @param next Trajectory to follow from here on.
+     */
+    public void splice(TrajectorySource next) {
+        Pose2d pose = drivetrain.getState().Pose;
+        next.sample(0, sample);
+        spliceOffsetX = pose.getX() - sample[TrajectorySource.kX];
+        spliceOffsetY = pose.getY() - sample[TrajectorySource.kY];
+
+        trajectory = next;
+        blueHeading = next.getEndHeading();
+        redHeading = next.getEndHeading().rotateBy(Rotation2d.kPi);
+        timer.restart();
+    }
+
+    @Override
+    public void execute() {
+        double time = timer.get();
+        trajectory.sample(time, sample);
+        Pose2d pose = drivetrain.getState().Pose;
+
+        double blend = Math.max(0, 1 - time / kSpliceBlendTime);
+        double x = sample[TrajectorySource.kX] + spliceOffsetX * blend;
+        double y = sample[TrajectorySource.kY] + spliceOffsetY * blend;
+        double vx = sample[TrajectorySource.kVx] + kPositionGain * (x - pose.getX());
+        double vy = sample[TrajectorySource.kVy] + kPositionGain * (y - pose.getY());
+
+        boolean red = isRedAlliance.getAsBoolean();
+        double perspective = red ? -1 : 1;
+        reference.x = MathUtil.clamp(perspective * vx / kMaxSpeed, -1, 1);
+        reference.y = MathUtil.clamp(perspective * vy / kMaxSpeed, -1, 1);
+        reference.heading = red ? redHeading : blueHeading;
+
+        super.execute();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return timer.hasElapsed(trajectory.getDuration());
+    }
+
+    /**
+     * Values handed to the drive request each loop, as fractions of max speed.
+     */
+    private static class Reference {
+        private double x = 0;
+        private double y = 0;
+        private Rotation2d heading = Rotation2d.kZero;
+
+        double getX() {
+            return x;
+        }
+
+        double getY() {
+            return y;
+        }
+
+        Rotation2d getHeading() {
+            return heading;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package frc.robot.trajectory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.Auto;
+import frc.robot.AutoPlan;
+import frc.robot.Constants.Field.Branch;
+import frc.robot.ReefWaypoints;
+import frc.robot.subsystems.TelemetryPublisher;
+
+/**
+ * Teleop paths to reef branches, planned on demand and kept for reuse. Paths are keyed by the
+ * start cell the robot is in (a square of the field and the direction it's moving) and the
+ * target branch, and always start from the center of the cell, so every request from the same
+ * cell shares one path. The follower blends out the offset to the robot's real pose.
+ *
+ * <p>Misses are planned on a background thread and the caller falls back to driving straight
+ * at the waypoint until the path is ready. The least recently used paths are dropped once the
+ * cache is over its memory budget. While disabled, prewarm() plans every branch from the load
+ * stations, the auto start poses and the cells used most so far this session.
+ */
+public class PathCache extends SubsystemBase {
+    private static final double kCellSize = 0.5;
+    private static final int kGridSize = 64;
+    private static final int kDirectionBuckets = 8;
+    // Direction bucket for a robot that's barely moving, its paths start from rest
+    private static final int kStationary = kDirectionBuckets;
+    private static final double kMovingSpeed = 0.5;
+    // Start speed of paths planned for a moving robot
+    private static final double kStartSpeed = 1.5;
+    private static final int kBudgetBytes = 1 << 20;
+    private static final int kPrewarmCells = 6;
+
+    private final LinkedHashMap<Long, SampledTrajectory> paths = new LinkedHashMap<>(256, 0.75f, true);
+    private final Set<Long> pending = ConcurrentHashMap.newKeySet();
+    // Paths the generator couldn't plan, not asked for again so the planner doesn't retry them every loop
+    private final Set<Long> failed = ConcurrentHashMap.newKeySet();
+    private final HashMap<Long, Integer> cellUses = new HashMap<>();
+    private final ExecutorService planner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "PathCache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by paths
+    private int sizeBytes = 0;
+    private int evictions = 0;
+
+    private int hits = 0;
+    private int misses = 0;
+    private volatile double planTimeMs = 0;
+    private int prewarmedAlliance = -1;
+    private boolean cellUsesChanged = false;
+
+    private final TelemetryPublisher.DoubleChannel hitsChannel;
+    private final TelemetryPublisher.DoubleChannel missesChannel;
+    private final TelemetryPublisher.DoubleChannel evictionsChannel;
+    private final TelemetryPublisher.DoubleChannel cachedChannel;
+    private final TelemetryPublisher.DoubleChannel sizeChannel;
+    private final TelemetryPublisher.DoubleChannel pendingChannel;
+    private final TelemetryPublisher.DoubleChannel planTimeChannel;
+
+    public PathCache(TelemetryPublisher telemetry) {
+        hitsChannel = telemetry.addDouble("Paths/Hits", TelemetryPublisher.Rate.kDiagnostic, 0);
+        missesChannel = telemetry.addDouble("Paths/Misses", TelemetryPublisher.Rate.kDiagnostic, 0);
+        evictionsChannel = telemetry.addDouble("Paths/Evictions", TelemetryPublisher.Rate.kDiagnostic, 0);
+        cachedChannel = telemetry.addDouble("Paths/Cached", TelemetryPublisher.Rate.kDiagnostic, 0);
+        sizeChannel = telemetry.addDouble("Paths/Size (KB)", TelemetryPublisher.Rate.kDiagnostic, 1);
+        pendingChannel = telemetry.addDouble("Paths/Planning", TelemetryPublisher.Rate.kDiagnostic, 0);
+        planTimeChannel = telemetry.addDouble("Paths/Plan Time (ms)", TelemetryPublisher.Rate.kDiagnostic, 0.01);
+    }
+
+    /**
+     * Gets the path from the robot's cell to a reef branch. On a miss the path is queued for
+     * planning, so asking again a few loops later will find it.
+     * @param pose Robot pose.
+     * @param vx Field relative x velocity, meters per second.
+     * @param vy Field relative y velocity, meters per second.
+     * @param tag Reef tag.
+     * @param branch Branch beside the tag.
+     * @param isRedAlliance True if on the red alliance.
+     * @return Cached path, or null if it isn't planned yet.
+     */
+    public SampledTrajectory get(Pose2d pose, double vx, double vy, int tag, Branch branch, boolean isRedAlliance) {
+        long cell = cell(pose.getX(), pose.getY(), direction(vx, vy));
+        cellUses.merge(cell, 1, Integer::sum);
+        cellUsesChanged = true;
+
+        SampledTrajectory path;
+        synchronized (paths) {
+            path = paths.get(key(cell, tag, branch));
+        }
+        if (path != null) {
+            hits++;
+            return path;
+        }
+        misses++;
+        request(cell, tag, branch, isRedAlliance);
+        return null;
+    }
+
+    /**
+     * Queues every branch on the alliance from the common start cells. Cheap to call every
+     * disabled loop, it only queues anything when the alliance or the most used cells change.
+     * @param isRedAlliance True if on the red alliance.
+     */
+    public void prewarm(boolean isRedAlliance) {
+        int alliance = isRedAlliance ? 1 : 0;
+        if (alliance == prewarmedAlliance && !cellUsesChanged) {
+            return;
+        }
+        prewarmedAlliance = alliance;
+        cellUsesChanged = false;
+
+        List<Long> cells = new ArrayList<>();
+        for (AutoPlan.Station station : AutoPlan.Station.values()) {
+            Pose2d pose = AutoPlan.getStationPose(station, isRedAlliance);
+            cells.add(cell(pose.getX(), pose.getY(), kStationary));
+        }
+        int half = Auto.kStartPoses.length / 2;
+        for (int i = isRedAlliance ? half : 0; i < (isRedAlliance ? Auto.kStartPoses.length : half); i++) {
+            cells.add(cell(Auto.kStartPoses[i].getX(), Auto.kStartPoses[i].getY(), kStationary));
+        }
+        cellUses.entrySet().stream()
+            .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed())
+            .limit(kPrewarmCells)
+            .forEach(entry -> cells.add(entry.getKey()));
+
+        for (long cell : cells) {
+            for (int tag : isRedAlliance ? TrajectoryBaker.kRedTags : TrajectoryBaker.kBlueTags) {
+                request(cell, tag, Branch.kLeft, isRedAlliance);
+                request(cell, tag, Branch.kRight, isRedAlliance);
+            }
+        }
+    }
+
+    private void request(long cell, int tag, Branch branch, boolean isRedAlliance) {
+        long key = key(cell, tag, branch);
+        synchronized (paths) {
+            if (paths.containsKey(key)) {
+                return;
+            }
+        }
+        if (!failed.contains(key) && pending.add(key)) {
+            planner.execute(() -> plan(key, cell, tag, branch, isRedAlliance));
+        }
+    }
+
+    /**
+     * Plans one path and adds it to the cache. Runs on the planner thread.
+     */
+    private void plan(long key, long cell, int tag, Branch branch, boolean isRedAlliance) {
+        try {
+            long start = System.nanoTime();
+            int direction = (int) (cell % (kDirectionBuckets + 1));
+            long square = cell / (kDirectionBuckets + 1);
+            Pose2d startPose = new Pose2d(
+                (square / kGridSize + 0.5) * kCellSize,
+                (square % kGridSize + 0.5) * kCellSize,
+                Rotation2d.kZero);
+            Pose2d end = ReefWaypoints.getPose(tag, branch);
+
+            TrajectoryConfig config = new TrajectoryConfig(TrajectoryBaker.kMaxVelocity, TrajectoryBaker.kMaxAcceleration);
+            Rotation2d startTangent = null;
+            if (direction != kStationary) {
+                config.setStartVelocity(kStartSpeed);
+                startTangent = Rotation2d.fromRadians(direction * 2 * Math.PI / kDirectionBuckets);
+            }
+
+            Trajectory trajectory = TrajectoryBaker.generate(startPose, startTangent, end,
+                isRedAlliance ? TrajectoryBaker.kRedReefCenter : TrajectoryBaker.kBlueReefCenter, config);
+            SampledTrajectory path = new SampledTrajectory(
+                TrajectoryBaker.flatten(trajectory), TrajectoryBaker.kDt, end.getRotation());
+
+            synchronized (paths) {
+                paths.put(key, path);
+                sizeBytes += path.getSizeBytes();
+                Iterator<SampledTrajectory> eldest = paths.values().iterator();
+                while (sizeBytes > kBudgetBytes && eldest.hasNext()) {
+                    sizeBytes -= eldest.next().getSizeBytes();
+                    eldest.remove();
+                    evictions++;
+                }
+            }
+            planTimeMs = (System.nanoTime() - start) / 1e6;
+        } catch (RuntimeException e) {
+            failed.add(key);
+            DataLogManager.log("PathCache: couldn't plan to tag " + tag + " " + branch + ": " + e);
+        } finally {
+            pending.remove(key);
+        }
+    }
+
+    /**
+     * Packs a field square and a direction bucket into one number.
+     */
+    private static long cell(double x, double y, int direction) {
+        long column = Math.max(0, Math.min(kGridSize - 1, (long) Math.floor(x / kCellSize)));
+        long row = Math.max(0, Math.min(kGridSize - 1, (long) Math.floor(y / kCellSize)));
+        return (column * kGridSize + row) * (kDirectionBuckets + 1) + direction;
+    }
+
+    private static int direction(double vx, double vy) {
+        if (Math.hypot(vx, vy) < kMovingSpeed) {
+            return kStationary;
+        }
+        long bucket = Math.round(Math.atan2(vy, vx) / (2 * Math.PI / kDirectionBuckets));
+        return (int) Math.floorMod(bucket, (long) kDirectionBuckets);
+    }
+
+    private static long key(long cell, int tag, Branch branch) {
+        return (cell * 32 + tag) * 2 + branch.ordinal();
+    }
+
+    @Override
+    public void periodic() {
+        hitsChannel.set(hits);
+        missesChannel.set(misses);
+        pendingChannel.set(pending.size());
+        planTimeChannel.set(planTimeMs);
+        synchronized (paths) {
+            evictionsChannel.set(evictions);
+            cachedChannel.set(paths.size());
+            sizeChannel.set(sizeBytes / 1024.0);
+        }
+    }
+}
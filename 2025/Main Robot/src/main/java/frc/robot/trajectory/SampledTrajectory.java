@@ -0,0 +1,66 @@
+package frc.robot.trajectory;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * A trajectory held in memory as evenly spaced samples, in the same layout as the baked ones.
+ */
+public class SampledTrajectory implements TrajectorySource {
+    private final float[] data;
+    private final int samples;
+    private final double dt;
+    private final Rotation2d endHeading;
+
+    /**
+     * Creates a trajectory from flattened samples.
+     * @param data kSampleSize values per sample.
+     * @param dt Seconds between samples.
+     * @param endHeading Heading to hold while following it.
+     */
+    public SampledTrajectory(float[] data, double dt, Rotation2d endHeading) {
+        this.data = data;
+        this.samples = data.length / kSampleSize;
+        this.dt = dt;
+        this.endHeading = endHeading;
+    }
+
+    /**
+     * Gets how much memory the samples take.
+     * @return Size in bytes.
+     */
+    public int getSizeBytes() {
+        return data.length * Float.BYTES;
+    }
+
+    @Override
+    public double getDuration() {
+        return (samples - 1) * dt;
+    }
+
+    @Override
+    public void sample(double time, double[] out) {
+        if (time >= getDuration()) {
+            int last = (samples - 1) * kSampleSize;
+            out[kX] = data[last + kX];
+            out[kY] = data[last + kY];
+            out[kVx] = 0;
+            out[kVy] = 0;
+            return;
+        }
+
+        double position = Math.max(0, time) / dt;
+        int index = (int) position;
+        double fraction = position - index;
+        int a = index * kSampleSize;
+        int b = a + kSampleSize;
+        for (int i = 0; i < kSampleSize; i++) {
+            double from = data[a + i];
+            out[i] = from + (data[b + i] - from) * fraction;
+        }
+    }
+
+    @Override
+    public Rotation2d getEndHeading() {
+        return endHeading;
+    }
+}
@@ -0,0 +1,163 @@
+package frc.robot.trajectory;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+import frc.robot.Auto;
+import frc.robot.Constants.Field.Branch;
+import frc.robot.ReefWaypoints;
+
+/**
+ * Generates every auto trajectory from each start pose to each reef waypoint on the same
+ * alliance and writes them in the BakedTrajectories format. Run on a workstation before
+ * deploying, the output goes in src/main/deploy.
+ */
+public final class TrajectoryBaker {
+    // Shared with PathCache, which plans teleop paths the same way on the robot
+    static final double kDt = 0.02;
+    static final double kMaxVelocity = 3.0;
+    static final double kMaxAcceleration = 2.5;
+
+    // Paths are kept outside this radius around the reef center
+    private static final double kReefClearance = 2.2;
+    static final Translation2d kBlueReefCenter = new Translation2d(4.489, 4.026);
+    static final Translation2d kRedReefCenter = new Translation2d(13.059, 4.026);
+
+    static final int[] kBlueTags = {17, 18, 19, 20, 21, 22};
+    static final int[] kRedTags = {6, 7, 8, 9, 10, 11};
+
+    private TrajectoryBaker() {}
+
+    public static void main(String[] args) throws IOException {
+        String deploy = args.length > 0 ? args[0] : "src/main/deploy";
+        String output = deploy + "/" + BakedTrajectories.kFileName;
+        ReefWaypoints.load();
+
+        TrajectoryConfig config = new TrajectoryConfig(kMaxVelocity, kMaxAcceleration);
+        List<int[]> keys = new ArrayList<>();
+        List<float[]> paths = new ArrayList<>();
+        List<Float> headings = new ArrayList<>();
+
+        for (int start = 0; start < Auto.kStartPoses.length; start++) {
+            Pose2d startPose = Auto.kStartPoses[start];
+            boolean red = start >= Auto.kStartPoses.length / 2;
+            for (int tag : red ? kRedTags : kBlueTags) {
+                for (Branch branch : new Branch[] {Branch.kLeft, Branch.kRight}) {
+                    Pose2d end = ReefWaypoints.getPose(tag, branch);
+                    Trajectory trajectory = generate(startPose, end, red ? kRedReefCenter : kBlueReefCenter, config);
+
+                    keys.add(new int[] {start, tag, branch.ordinal()});
+                    paths.add(flatten(trajectory));
+                    headings.add((float) end.getRotation().getRadians());
+                }
+            }
+        }
+
+        write(output, keys, paths, headings);
+        System.out.println("Wrote " + paths.size() + " trajectories to " + output);
+    }
+
+    private static Trajectory generate(Pose2d start, Pose2d end, Translation2d reefCenter, TrajectoryConfig config) {
+        return generate(start, null, end, reefCenter, config);
+    }
+
+    /**
+     * Generates a path to a reef waypoint that goes around the reef instead of through it.
+     * @param start Start pose, only its translation is used.
+     * @param startTangent Direction of travel at the start, or null to head straight for the
+     *     first point on the way.
+     * @param end Reef waypoint.
+     * @param reefCenter Center of the reef on the same alliance.
+     * @param config Velocity and acceleration limits, and the start velocity.
+     * @return Generated trajectory.
+     */
+    static Trajectory generate(Pose2d start, Rotation2d startTangent, Pose2d end, Translation2d reefCenter, TrajectoryConfig config) {
+        // Walk around the reef in steps of at most 60 degrees instead of driving through it
+        Rotation2d from = start.getTranslation().minus(reefCenter).getAngle();
+        Rotation2d to = end.getTranslation().minus(reefCenter).getAngle();
+        double sweep = to.minus(from).getRadians();
+        int steps = (int) Math.ceil(Math.abs(sweep) / Math.toRadians(60));
+
+        List<Translation2d> interior = new ArrayList<>();
+        for (int i = 1; i < steps; i++) {
+            Rotation2d angle = from.plus(Rotation2d.fromRadians(sweep * i / steps));
+            interior.add(reefCenter.plus(new Translation2d(kReefClearance, angle)));
+        }
+
+        Translation2d firstTarget = interior.isEmpty() ? end.getTranslation() : interior.get(0);
+        Translation2d lastSource = interior.isEmpty() ? start.getTranslation() : interior.get(interior.size() - 1);
+        if (startTangent == null) {
+            startTangent = firstTarget.minus(start.getTranslation()).getAngle();
+        }
+        Rotation2d endTangent = end.getTranslation().minus(lastSource).getAngle();
+
+        return TrajectoryGenerator.generateTrajectory(
+            new Pose2d(start.getTranslation(), startTangent),
+            interior,
+            new Pose2d(end.getTranslation(), endTangent),
+            config);
+    }
+
+    static float[] flatten(Trajectory trajectory) {
+        int samples = (int) Math.ceil(trajectory.getTotalTimeSeconds() / kDt) + 1;
+        float[] data = new float[samples * TrajectorySource.kSampleSize];
+        for (int i = 0; i < samples; i++) {
+            Trajectory.State state = trajectory.sample(Math.min(i * kDt, trajectory.getTotalTimeSeconds()));
+            Rotation2d direction = state.poseMeters.getRotation();
+            int base = i * TrajectorySource.kSampleSize;
+            data[base + TrajectorySource.kX] = (float) state.poseMeters.getX();
+            data[base + TrajectorySource.kY] = (float) state.poseMeters.getY();
+            data[base + TrajectorySource.kVx] = (float) (state.velocityMetersPerSecond * direction.getCos());
+            data[base + TrajectorySource.kVy] = (float) (state.velocityMetersPerSecond * direction.getSin());
+        }
+        return data;
+    }
+
+    private static void write(String output, List<int[]> keys, List<float[]> paths, List<Float> headings) throws IOException {
+        int count = paths.size();
+        int dataStart = BakedTrajectories.kHeaderBytes + count * BakedTrajectories.kIndexBytes;
+        int size = dataStart;
+        for (float[] path : paths) {
+            size += path.length * 4;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(BakedTrajectories.kMagic);
+        buffer.putInt(BakedTrajectories.kVersion);
+        buffer.putInt(count);
+        buffer.putFloat((float) kDt);
+
+        int offset = dataStart;
+        for (int i = 0; i < count; i++) {
+            int[] key = keys.get(i);
+            buffer.put((byte) key[0]);
+            buffer.put((byte) key[1]);
+            buffer.put((byte) key[2]);
+            buffer.put((byte) 0);
+            buffer.putInt(paths.get(i).length / TrajectorySource.kSampleSize);
+            buffer.putInt(offset);
+            buffer.putFloat(headings.get(i));
+            offset += paths.get(i).length * 4;
+        }
+
+        for (float[] path : paths) {
+            for (float value : path) {
+                buffer.putFloat(value);
+            }
+        }
+
+        try (FileOutputStream stream = new FileOutputStream(output)) {
+            stream.write(buffer.array());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package frc.robot.trajectory;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * A time-parameterized path that can be sampled without allocating.
+ */
+public interface TrajectorySource {
+    /** Index of the x position in a sample, in meters. */
+    int kX = 0;
+    /** Index of the y position in a sample, in meters. */
+    int kY = 1;
+    /** Index of the field x velocity in a sample, in meters per second. */
+    int kVx = 2;
+    /** Index of the field y velocity in a sample, in meters per second. */
+    int kVy = 3;
+    /** Number of values in a sample. */
+    int kSampleSize = 4;
+
+    /**
+     * Gets the total time of the path.
+     * @return Duration in seconds.
+     */
+    double getDuration();
+
+    /**
+     * Samples the path, interpolating between stored points. Times past the end return the
+     * final point with zero velocity.
+     * @param time Seconds since the start of the path.
+     * @param out Array of at least kSampleSize values to write the sample into.
+     */
+    void sample(double time, double[] out);
+
+    /**
+     * Gets the field-relative heading the robot should hold while following the path.
+     * @return Heading at the end of the path.
+     */
+    Rotation2d getEndHeading();
+}
@@ -0,0 +1,62 @@
+package frc.robot.vision;
+
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+
+/**
+ * A Limelight's MegaTag result, read from its botpose_wpiblue array in NetworkTables. Every
+ * update is queued, so the vision thread sees each frame even if it falls behind a little.
+ */
+public class LimelightCamera implements VisionCamera {
+    // x, y, z, roll, pitch, yaw (degrees), latency (ms), tag count, tag span, distance, area
+    private static final int kPoseValues = 11;
+    // id, tx, ty, area, distance to camera, distance to robot, ambiguity
+    private static final int kTagValues = 7;
+    private static final int kQueueDepth = 10;
+
+    private final DoubleArraySubscriber botPose;
+    private TimestampedDoubleArray[] queue = new TimestampedDoubleArray[0];
+    private int queueIndex = 0;
+
+    /**
+     * @param name The Limelight's hostname, which is also its NetworkTables table.
+     */
+    public LimelightCamera(String name) {
+        botPose = NetworkTableInstance.getDefault().getTable(name).getDoubleArrayTopic("botpose_wpiblue")
+            .subscribe(new double[0], PubSubOption.pollStorage(kQueueDepth));
+    }
+
+    @Override
+    public boolean poll(VisionFrame frame) {
+        if (queueIndex >= queue.length) {
+            queue = botPose.readQueue();
+            queueIndex = 0;
+            if (queue.length == 0) {
+                return false;
+            }
+        }
+
+        TimestampedDoubleArray result = queue[queueIndex++];
+        double[] values = result.value;
+        if (values.length < kPoseValues) {
+            frame.tagCount = 0;
+            return true;
+        }
+
+        // NetworkTables timestamps are FPGA microseconds on the robot
+        frame.timestamp = result.timestamp / 1e6 - values[6] / 1000;
+        frame.x = values[0];
+        frame.y = values[1];
+        frame.heading = Math.toRadians(values[5]);
+        frame.tagCount = Math.min(VisionFrame.kMaxTags, (values.length - kPoseValues) / kTagValues);
+        for (int i = 0; i < frame.tagCount; i++) {
+            int start = kPoseValues + i * kTagValues;
+            frame.tagIds[i] = (int) values[start];
+            frame.tagDistances[i] = (float) values[start + 4];
+            frame.tagAmbiguities[i] = (float) values[start + 6];
+        }
+        return true;
+    }
+}
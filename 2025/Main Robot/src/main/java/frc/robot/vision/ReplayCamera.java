@@ -0,0 +1,167 @@
+package frc.robot.vision;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.DataLogManager;
+
+/**
+ * Plays back camera results recorded by a Recorder, standing in for the real camera so the
+ * vision pipeline can run headless. Each result comes out once the clock reaches the time it
+ * originally arrived at, with its capture time moved onto the current clock by the same delay
+ * it had on the field, so latency compensation sees what it saw then.
+ *
+ * <p>Log format, little endian: magic, version, record size, then one record per result: the
+ * FPGA time it arrived in seconds followed by the VisionFrame.
+ */
+public class ReplayCamera implements VisionCamera {
+    private static final int kMagic = 0x5649534E; // "VISN"
+    private static final int kFileVersion = 1;
+    private static final int kHeaderBytes = 12;
+    private static final int kArrivalBytes = 8;
+
+    private static String replayLog = null;
+
+    private final ByteBuffer log;
+    private final int recordSize;
+    private final int records;
+    private final DoubleSupplier recordedTime;
+    private final DoubleSupplier currentTime;
+    private int index = 0;
+
+    /**
+     * Opens a recorded log.
+     * @param path Log written by a Recorder.
+     * @param recordedTime Clock in the recording's time, results up to it are released.
+     * @param currentTime Clock the pipeline and drivetrain run on now.
+     * @throws IOException If the log can't be read or isn't a vision log.
+     */
+    public ReplayCamera(String path, DoubleSupplier recordedTime, DoubleSupplier currentTime) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r")) {
+            log = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        if (log.getInt(0) != kMagic || log.getInt(4) != kFileVersion) {
+            throw new IOException(path + " isn't a vision log this build can read");
+        }
+        recordSize = log.getInt(8);
+        records = (log.capacity() - kHeaderBytes) / recordSize;
+        this.recordedTime = recordedTime;
+        this.currentTime = currentTime;
+    }
+
+    /**
+     * Sets the log that replay mode plays back. Called by the replay runner before the robot
+     * is constructed.
+     * @param path Vision log, or null for no camera.
+     */
+    public static void setReplayLog(String path) {
+        replayLog = path;
+    }
+
+    public static String getReplayLog() {
+        return replayLog;
+    }
+
+    public int getRecordCount() {
+        return records;
+    }
+
+    /**
+     * Starts playback over from the first result.
+     */
+    public void rewind() {
+        index = 0;
+    }
+
+    @Override
+    public boolean poll(VisionFrame frame) {
+        if (index >= records) {
+            return false;
+        }
+        int start = kHeaderBytes + index * recordSize;
+        double arrival = log.getDouble(start);
+        if (arrival > recordedTime.getAsDouble()) {
+            return false;
+        }
+        index++;
+        frame.fromLog(log, start + kArrivalBytes);
+        // Keep the recorded delay between capture and arrival, with the arrival being now
+        frame.timestamp += currentTime.getAsDouble() - arrival;
+        return true;
+    }
+
+    /**
+     * Writes camera results to a log for ReplayCamera. Only used from the vision thread.
+     */
+    public static class Recorder {
+        private static final int kFlushEveryRecords = 20;
+
+        private final VisionFrame layout = new VisionFrame();
+        private final ByteBuffer buffer;
+        private FileChannel output;
+        private int unflushed = 0;
+
+        /**
+         * Creates a log file, or a recorder that drops everything if it can't be created.
+         * @param file Log file to write.
+         */
+        public Recorder(File file) {
+            buffer = ByteBuffer.allocateDirect((kArrivalBytes + layout.size()) * kFlushEveryRecords).order(ByteOrder.LITTLE_ENDIAN);
+            try {
+                output = new RandomAccessFile(file, "rw").getChannel();
+                ByteBuffer header = ByteBuffer.allocate(kHeaderBytes).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(kMagic).putInt(kFileVersion).putInt(kArrivalBytes + layout.size());
+                header.flip();
+                output.write(header);
+                DataLogManager.log("Vision: recording camera results to " + file);
+            } catch (IOException e) {
+                DataLogManager.log("Vision: couldn't open " + file + ", not recording: " + e.getMessage());
+                output = null;
+            }
+        }
+
+        /**
+         * Appends a result.
+         * @param arrival FPGA time the result arrived, in seconds.
+         * @param frame Result as it came from the camera.
+         */
+        public void record(double arrival, VisionFrame frame) {
+            if (output == null) {
+                return;
+            }
+            int start = buffer.position();
+            buffer.putDouble(start, arrival);
+            frame.toLog(buffer, start + kArrivalBytes);
+            buffer.position(start + kArrivalBytes + layout.size());
+
+            if (++unflushed >= kFlushEveryRecords) {
+                flush();
+            }
+        }
+
+        /**
+         * Writes out everything recorded so far.
+         */
+        public void flush() {
+            if (output == null) {
+                return;
+            }
+            unflushed = 0;
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    output.write(buffer);
+                }
+            } catch (IOException e) {
+                DataLogManager.log("Vision: write failed, recording stopped: " + e.getMessage());
+                output = null;
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package frc.robot.vision;
+
+/**
+ * Source of AprilTag pose results. The default does nothing, for robots or modes without a
+ * camera.
+ */
+public interface VisionCamera {
+    /**
+     * Fills in the oldest result that hasn't been read yet. Called from the vision thread.
+     * @param frame Frame to fill in.
+     * @return False if there's no new result.
+     */
+    default boolean poll(VisionFrame frame) {
+        return false;
+    }
+}
@@ -0,0 +1,81 @@
+package frc.robot.vision;
+
+import java.nio.ByteBuffer;
+
+import frc.robot.replay.LoggableInputs;
+
+/**
+ * One camera result: the robot pose the camera solved for, when the image was captured, and
+ * the tags it was solved from. Reused for every frame, so reading a camera doesn't allocate.
+ */
+public class VisionFrame implements LoggableInputs {
+    /** Most tags kept per frame, extra tags are dropped. */
+    public static final int kMaxTags = 8;
+
+    /** FPGA time the image was captured, in seconds. */
+    public double timestamp = 0;
+    /** Robot pose on the blue origin field, meters and radians. */
+    public double x = 0;
+    public double y = 0;
+    public double heading = 0;
+    public int tagCount = 0;
+    public final int[] tagIds = new int[kMaxTags];
+    /** Distance from the camera to each tag, in meters. */
+    public final float[] tagDistances = new float[kMaxTags];
+    /** Pose ambiguity of each tag, 0 to 1. */
+    public final float[] tagAmbiguities = new float[kMaxTags];
+
+    public double getAverageDistance() {
+        if (tagCount == 0) {
+            return 0;
+        }
+        double total = 0;
+        for (int i = 0; i < tagCount; i++) {
+            total += tagDistances[i];
+        }
+        return total / tagCount;
+    }
+
+    public double getMaxAmbiguity() {
+        double max = 0;
+        for (int i = 0; i < tagCount; i++) {
+            max = Math.max(max, tagAmbiguities[i]);
+        }
+        return max;
+    }
+
+    @Override
+    public int size() {
+        return 8 * 4 + 4 + kMaxTags * (1 + 4 + 4);
+    }
+
+    @Override
+    public void toLog(ByteBuffer buffer, int offset) {
+        buffer.putDouble(offset, timestamp);
+        buffer.putDouble(offset + 8, x);
+        buffer.putDouble(offset + 16, y);
+        buffer.putDouble(offset + 24, heading);
+        buffer.putInt(offset + 32, tagCount);
+        int start = offset + 36;
+        for (int i = 0; i < kMaxTags; i++) {
+            buffer.put(start + i, (byte) tagIds[i]);
+            buffer.putFloat(start + kMaxTags + i * 4, tagDistances[i]);
+            buffer.putFloat(start + kMaxTags * 5 + i * 4, tagAmbiguities[i]);
+        }
+    }
+
+    @Override
+    public void fromLog(ByteBuffer buffer, int offset) {
+        timestamp = buffer.getDouble(offset);
+        x = buffer.getDouble(offset + 8);
+        y = buffer.getDouble(offset + 16);
+        heading = buffer.getDouble(offset + 24);
+        tagCount = buffer.getInt(offset + 32);
+        int start = offset + 36;
+        for (int i = 0; i < kMaxTags; i++) {
+            tagIds[i] = buffer.get(start + i);
+            tagDistances[i] = buffer.getFloat(start + kMaxTags + i * 4);
+            tagAmbiguities[i] = buffer.getFloat(start + kMaxTags * 5 + i * 4);
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package frc.robot.vision;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.ReefWaypoints;
+import frc.robot.subsystems.CommandSwerveDrivetrain;
+import frc.robot.subsystems.TelemetryPublisher;
+
+/**
+ * Corrects the drivetrain's pose with AprilTag results. A background thread polls the camera,
+ * throws out results that can't be trusted, and hands the rest to the pose estimator stamped
+ * with the time the image was captured, so the estimator blends them in against the odometry
+ * from that moment instead of now.
+ *
+ * <p>Trust falls off with the square of the tag distance and grows with the number of tags.
+ * Single tag results never correct the heading, the gyro is better than one tag at that.
+ * Once started, this subsystem's periodic only publishes the counts. Replay doesn't start the
+ * thread, periodic processes the results instead, so which results are released and when
+ * follows the replayed clock rather than how fast the host runs.
+ */
+public class VisionPipeline extends SubsystemBase {
+    private static final long kPollPeriodNanos = 5_000_000;
+
+    // Rejection limits
+    private static final int kMaxTagId = 22;
+    private static final double kFieldMargin = 0.5;
+    private static final double kMaxAmbiguity = 0.2;
+    private static final double kMaxSingleTagDistance = 4.0;
+    private static final double kMaxMultiTagDistance = 6.0;
+    private static final double kMaxLatency = 0.5;
+    private static final double kMaxYawRate = 3.0; // radians per second, images blur past this
+    private static final double kMaxHeadingError = Math.toRadians(15);
+
+    // Standard deviations at one meter from a single tag
+    private static final double kXyStdDev = 0.03;
+    private static final double kHeadingStdDev = 0.06;
+    private static final double kIgnoredStdDev = 1e6;
+
+    /** Why a result was thrown out. */
+    public enum Rejection {
+        kNoTags("No Tags"),
+        kUnknownTag("Unknown Tag"),
+        kOutsideField("Outside Field"),
+        kAmbiguous("Ambiguous"),
+        kTooFar("Too Far"),
+        kStale("Stale"),
+        kSpinning("Spinning"),
+        kHeadingMismatch("Heading Mismatch");
+
+        private final String label;
+
+        Rejection(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * What the pipeline needs from the pose estimator. All of it is called from the vision
+     * thread. Timestamps are FPGA seconds.
+     */
+    public interface Estimator {
+        /**
+         * @return Odometry pose at the given time, or empty if it's outside the history.
+         */
+        Optional<Pose2d> samplePoseAt(double timestamp);
+
+        /**
+         * @return Current rotation rate, radians per second.
+         */
+        double getYawRate();
+
+        void addVisionMeasurement(Pose2d pose, double timestamp, Matrix<N3, N1> stdDevs);
+    }
+
+    private final VisionCamera camera;
+    private final Estimator estimator;
+    private final ReplayCamera.Recorder recorder;
+    private final VisionFrame frame = new VisionFrame();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private boolean started = false;
+
+    private final AtomicLongArray rejections = new AtomicLongArray(Rejection.values().length);
+    private volatile long accepted = 0;
+    private volatile double latencyMs = 0;
+    private volatile double processMicros = 0;
+
+    private final TelemetryPublisher.DoubleChannel acceptedChannel;
+    private final TelemetryPublisher.DoubleChannel latencyChannel;
+    private final TelemetryPublisher.DoubleChannel processTimeChannel;
+    private final TelemetryPublisher.DoubleChannel[] rejectionChannels = new TelemetryPublisher.DoubleChannel[Rejection.values().length];
+
+    /**
+     * @param camera Where results come from.
+     * @param estimator Pose estimator to correct.
+     * @param telemetry Publisher for the counts.
+     * @param recorder Where to record every result for replay, or null to not record.
+     */
+    public VisionPipeline(VisionCamera camera, Estimator estimator, TelemetryPublisher telemetry, ReplayCamera.Recorder recorder) {
+        this.camera = camera;
+        this.estimator = estimator;
+        this.recorder = recorder;
+
+        acceptedChannel = telemetry.addDouble("Vision/Accepted", TelemetryPublisher.Rate.kDiagnostic, 0);
+        latencyChannel = telemetry.addDouble("Vision/Latency (ms)", TelemetryPublisher.Rate.kDiagnostic, 0.1);
+        processTimeChannel = telemetry.addDouble("Vision/Process Time (us)", TelemetryPublisher.Rate.kDiagnostic, 1);
+        for (Rejection rejection : Rejection.values()) {
+            rejectionChannels[rejection.ordinal()] = telemetry.addDouble(
+                "Vision/Rejected/" + rejection.label, TelemetryPublisher.Rate.kDiagnostic, 0);
+        }
+
+        worker = new Thread(this::run, "VisionPipeline");
+        worker.setDaemon(true);
+    }
+
+    /**
+     * Adapts the drivetrain's pose estimator. The drivetrain takes FPGA timestamps and converts
+     * them to its own time base.
+     * @param drivetrain Drivetrain to correct.
+     * @return Estimator for the pipeline.
+     */
+    public static Estimator estimator(CommandSwerveDrivetrain drivetrain) {
+        return new Estimator() {
+            @Override
+            public Optional<Pose2d> samplePoseAt(double timestamp) {
+                return drivetrain.samplePoseAt(timestamp);
+            }
+
+            @Override
+            public double getYawRate() {
+                return drivetrain.getState().Speeds.omegaRadiansPerSecond;
+            }
+
+            @Override
+            public void addVisionMeasurement(Pose2d pose, double timestamp, Matrix<N3, N1> stdDevs) {
+                drivetrain.addVisionMeasurement(pose, timestamp, stdDevs);
+            }
+        };
+    }
+
+    /**
+     * Starts the vision thread.
+     */
+    public void start() {
+        started = true;
+        worker.start();
+    }
+
+    /**
+     * Stops the vision thread after its current pass.
+     */
+    public void stop() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (running) {
+            processAvailable();
+            LockSupport.parkNanos(kPollPeriodNanos);
+        }
+        if (recorder != null) {
+            recorder.flush();
+        }
+    }
+
+    /**
+     * Reads and processes every result the camera has ready. Runs on the vision thread, or
+     * from periodic() and benchmarks when the thread isn't started.
+     * @return Number of results processed.
+     */
+    public int processAvailable() {
+        int processed = 0;
+        while (camera.poll(frame)) {
+            long start = System.nanoTime();
+            double now = Timer.getFPGATimestamp();
+            if (recorder != null) {
+                recorder.record(now, frame);
+            }
+
+            Rejection rejection = check(frame, now);
+            if (rejection == null) {
+                apply(frame);
+                accepted++;
+                latencyMs = (now - frame.timestamp) * 1000;
+            } else {
+                rejections.incrementAndGet(rejection.ordinal());
+            }
+            processMicros = (System.nanoTime() - start) / 1e3;
+            processed++;
+        }
+        return processed;
+    }
+
+    /**
+     * Checks a result against the rejection rules.
+     * @param frame Result to check.
+     * @param now Current FPGA time, seconds.
+     * @return Why it was rejected, or null to accept it.
+     */
+    private Rejection check(VisionFrame frame, double now) {
+        if (frame.tagCount == 0) {
+            return Rejection.kNoTags;
+        }
+        for (int i = 0; i < frame.tagCount; i++) {
+            if (frame.tagIds[i] < 1 || frame.tagIds[i] > kMaxTagId) {
+                return Rejection.kUnknownTag;
+            }
+        }
+        if (frame.x < -kFieldMargin || frame.x > ReefWaypoints.kFieldLength + kFieldMargin
+                || frame.y < -kFieldMargin || frame.y > ReefWaypoints.kFieldWidth + kFieldMargin) {
+            return Rejection.kOutsideField;
+        }
+
+        boolean singleTag = frame.tagCount == 1;
+        if (singleTag && frame.getMaxAmbiguity() > kMaxAmbiguity) {
+            return Rejection.kAmbiguous;
+        }
+        if (frame.getAverageDistance() > (singleTag ? kMaxSingleTagDistance : kMaxMultiTagDistance)) {
+            return Rejection.kTooFar;
+        }
+        double age = now - frame.timestamp;
+        if (age > kMaxLatency || age < 0) {
+            return Rejection.kStale;
+        }
+        if (Math.abs(estimator.getYawRate()) > kMaxYawRate) {
+            return Rejection.kSpinning;
+        }
+
+        // A single tag can flip to its mirror image solution, which shows up as a wrong heading
+        if (singleTag) {
+            Optional<Pose2d> odometry = estimator.samplePoseAt(frame.timestamp);
+            if (odometry.isPresent()) {
+                double error = Math.abs(Rotation2d.fromRadians(frame.heading).minus(odometry.get().getRotation()).getRadians());
+                if (error > kMaxHeadingError) {
+                    return Rejection.kHeadingMismatch;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void apply(VisionFrame frame) {
+        double distance = frame.getAverageDistance();
+        double scale = distance * distance / frame.tagCount;
+        double headingStdDev = frame.tagCount == 1 ? kIgnoredStdDev : kHeadingStdDev * scale;
+        estimator.addVisionMeasurement(
+            new Pose2d(frame.x, frame.y, Rotation2d.fromRadians(frame.heading)),
+            frame.timestamp,
+            VecBuilder.fill(kXyStdDev * scale, kXyStdDev * scale, headingStdDev));
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    public long getRejected(Rejection rejection) {
+        return rejections.get(rejection.ordinal());
+    }
+
+    @Override
+    public void periodic() {
+        if (!started) {
+            processAvailable();
+        }
+        acceptedChannel.set(accepted);
+        latencyChannel.set(latencyMs);
+        processTimeChannel.set(processMicros);
+        for (int i = 0; i < rejectionChannels.length; i++) {
+            rejectionChannels[i].set(rejections.get(i));
+        }
+    }
+}